@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.util.Set;
+
+/**
+ * A ComponentIndex maps the keys extracted from the components of a type to the entities holding them, so that
+ * finding the entities with a given key takes a hash lookup instead of a scan.
+ * The index is kept up to date by Dominion when entities are created, deleted or moved to another composition.
+ * Components changed in place must be followed by Entity::markChanged or Results.Chunk::markChanged to update the
+ * key of their entity.
+ *
+ * @param <K> the key type
+ */
+public interface ComponentIndex<K> {
+
+    /**
+     * Finds one of the entities with the given key.
+     *
+     * @param key the key
+     * @return an entity with the key, or null if none
+     */
+    Entity findEntity(K key);
+
+    /**
+     * Finds all the entities with the given key.
+     *
+     * @param key the key
+     * @return a read-only view of the entities with the key, empty if none
+     */
+    Set<Entity> findEntities(K key);
+
+    /**
+     * Provides the number of indexed entities.
+     *
+     * @return the number of entities with a key
+     */
+    int size();
+}
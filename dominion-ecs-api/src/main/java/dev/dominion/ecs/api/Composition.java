@@ -155,6 +155,20 @@ public interface Composition {
         OfTypes withValue(T1 comp1, T2 comp2, T3 comp3, T4 comp4, T5 comp5, T6 comp6, T7 comp7, T8 comp8);
     }
 
+    /**
+     * Provides the components of each new entity created in bulk.
+     */
+    @FunctionalInterface
+    interface Filler {
+        /**
+         * Fills the components of a new entity.
+         *
+         * @param index      the index of the new entity in the bulk creation, starting from 0
+         * @param components the array to fill, in the same order as the types of the prepared composition
+         */
+        void fill(int index, Object[] components);
+    }
+
     /**
      * The prepared modifier abstraction.
      */
@@ -10,6 +10,8 @@ import dev.dominion.ecs.api.Results.*;
 import java.lang.reflect.InvocationTargetException;
 import java.util.NoSuchElementException;
 import java.util.ServiceLoader;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 /**
  * A Dominion is an independent container for all ECS data. The User Application can create more than one Dominion with
@@ -97,6 +99,18 @@ public interface Dominion extends AutoCloseable {
      */
     Entity createEntityAs(Entity prefab, Object... components);
 
+    /**
+     * Creates count new Entities with the prepared composition in one step, by reserving contiguous slots and
+     * asking the filler to provide the components of each new Entity.
+     * It is meant to spawn a large number of entities at once, such as when a level is loaded.
+     *
+     * @param count       the number of entities to be created
+     * @param composition a prepared composition of one or more component types
+     * @param filler      the filler providing the components of each new Entity
+     * @return the new Entities in creation order, or null if one of the component types is a {@link LazyEntity}
+     */
+    Entity[] createEntities(int count, Composition.OfTypes composition, Composition.Filler filler);
+
     /**
      * Removes the entity by freeing the id and canceling the reference to all components, if any.
      *
@@ -105,6 +119,25 @@ public interface Dominion extends AutoCloseable {
      */
     boolean deleteEntity(Entity entity);
 
+    /**
+     * Removes all the entities found by the results at once.
+     * Compositions are cleared chunk by chunk without removing one entity at a time, while results filtered by
+     * state fall back to single deletions. Disabled entities are not found by results and are not removed.
+     * It must not run while the found entities are being created, iterated or modified.
+     *
+     * @param results the results of a find call
+     * @return the number of deleted entities
+     */
+    int deleteEntities(Results<?> results);
+
+    /**
+     * Returns the entity of a handle in constant time.
+     *
+     * @param handle the handle returned by Entity.getHandle()
+     * @return the entity, or null if the handle is stale because the entity has been deleted
+     */
+    Entity getEntity(long handle);
+
     /**
      * Modifies the entity composition by adding components and/or removing component types
      *
@@ -113,6 +146,84 @@ public interface Dominion extends AutoCloseable {
      */
     boolean modifyEntity(Composition.Modifier modifier);
 
+    /**
+     * Modifies the composition of all the entities found by the results at once, by adding components and/or
+     * removing component types with a prepared modifier.
+     * Entities are moved composition by composition with column-wise copies, while results filtered by state fall
+     * back to single modifications. It must not run while the found entities are being iterated or modified.
+     *
+     * @param results  the results of a find call
+     * @param modifier the prepared modifier returned by the Composition byRemoving or byAddingNAndRemoving methods
+     * @param filler   the filler providing the added components of each modified entity, in the same order as the
+     *                 added types of the modifier, or null if the modifier only removes component types
+     * @return the number of modified entities
+     */
+    int modifyEntities(Results<?> results, Composition.Modifier modifier, Composition.Filler filler);
+
+    /**
+     * Compacts the storage by moving up to budget entities into the holes left by deleted or modified entities, so
+     * that emptied chunks are released and iterations stay dense after heavy churn.
+     * The compaction is incremental and can be called between ticks with a budget that fits the available time.
+     * It must not run while systems are iterating or modifying entities.
+     *
+     * @param budget the maximum number of entities to move
+     * @return the number of moved entities
+     */
+    int compact(int budget);
+
+    /**
+     * Provides the current tick of the change-detection clock.
+     * Creations, modifications and explicit change marks stamp the chunks of the entities with the current tick, so
+     * that Results::changedSince can skip what did not change.
+     *
+     * @return the current tick, starting from 0
+     */
+    long currentTick();
+
+    /**
+     * Advances the change-detection clock, usually once at the beginning of every tick of the systems.
+     * The events recorded during the previous tick become available to be drained.
+     *
+     * @return the new current tick
+     */
+    long advanceTick();
+
+    /**
+     * Provides the events of the structural changes (creations, deletions and modifications of the entities) recorded
+     * during the last completed tick. Recording starts with the first call.
+     *
+     * @return the Events instance
+     */
+    Events events();
+
+    /**
+     * Creates an index of the entities with a component of the given type by a key extracted from the component.
+     * Existing entities are indexed at once, then the index is kept up to date by the Dominion.
+     * Components with a null key are not indexed.
+     *
+     * @param componentType the component type
+     * @param keyExtractor  the function extracting the key from a component
+     * @param <T>           the component type
+     * @param <K>           the key type
+     * @return the new index
+     */
+    <T, K> ComponentIndex<K> createIndex(Class<T> componentType, Function<? super T, ? extends K> keyExtractor);
+
+    /**
+     * Creates a spatial index of the entities with a position component of the given type, arranged in a uniform grid
+     * of square cells.
+     * Existing entities are indexed at once, then the index is kept up to date by the Dominion.
+     *
+     * @param positionType the position component type
+     * @param x            the function extracting the x coordinate from a position
+     * @param y            the function extracting the y coordinate from a position
+     * @param cellSize     the side of the grid cells
+     * @param <T>          the position component type
+     * @return the new spatial index
+     * @throws IllegalArgumentException if the cell size is not positive
+     */
+    <T> SpatialIndex<T> createSpatialIndex(Class<T> positionType, ToDoubleFunction<? super T> x, ToDoubleFunction<? super T> y, double cellSize);
+
     /**
      * Provides the Composition class to support the creation of prepared entities
      *
@@ -155,6 +266,16 @@ public interface Dominion extends AutoCloseable {
 
     <T1, T2, T3, T4, T5, T6> Results<With6<T1, T2, T3, T4, T5, T6>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6);
 
+    /**
+     * Finds all compositions with components of any number of specified types.
+     * Each result is a new array with the components in the order of the types, while forEachChunk provides the
+     * columns without allocating any result. It is the entry point of the queries generated for {@link Query} methods.
+     *
+     * @param types the component classes
+     * @return the results
+     */
+    Results<Object[]> findCompositionsWithAll(Class<?>... types);
+
     /**
      * Finds all entities with a component of the specified type.
      *
@@ -62,7 +62,9 @@ public interface Entity {
     boolean contains(Object component);
 
     /**
-     * Sets a state to the entity or remove the current state by passing a null value.
+     * Sets a state to the entity or removes all the current states by passing a null value.
+     * An entity keeps one state for each enumeration type: setting a state replaces only the current state of the
+     * same type.
      *
      * @param state the state, it can be null
      * @param <S>   the state enumeration type
@@ -70,6 +72,15 @@ public interface Entity {
      */
     <S extends Enum<S>> Entity setState(S state);
 
+    /**
+     * Removes the current state of the given enumeration type, if any.
+     *
+     * @param stateType the state enumeration type
+     * @param <S>       the state enumeration type
+     * @return the entity
+     */
+    <S extends Enum<S>> Entity removeState(Class<S> stateType);
+
     /**
      * Checks if the entity is enabled.
      *
@@ -85,6 +96,24 @@ public interface Entity {
      */
     Entity setEnabled(boolean enabled);
 
+    /**
+     * Returns a stable handle of the entity, packing a slot index and a generation into a long value that can be
+     * stored in components, messages or off-heap data and resolved back with Dominion.getEntity(handle).
+     * The handle is assigned on the first call and does not change when the entity composition changes.
+     * It becomes stale when the entity is deleted, even if its slot is reused by another entity.
+     *
+     * @return the handle, or 0 if the entity has been deleted before getting one
+     */
+    long getHandle();
+
+    /**
+     * Marks the entity as changed in the current tick, after replacing or mutating one of its components in place,
+     * so that it can be found by Results::changedSince.
+     *
+     * @return this entity
+     */
+    Entity markChanged();
+
     /**
      * Checks if the entity has been deleted.
      *
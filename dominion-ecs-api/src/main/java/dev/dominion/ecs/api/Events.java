@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+/**
+ * Events provide the structural changes of the entities recorded during the last completed tick, so that systems can
+ * update their own indexes incrementally instead of scanning all the entities.
+ * Events are recorded in the buffer of the current tick where the changes happen, with no callback, and the buffer
+ * becomes readable when Dominion::advanceTick starts a new tick. Buffers are reused from tick to tick, so draining
+ * does not allocate: any number of systems can drain the same tick, until the clock is advanced again.
+ * Recording starts with the first call to Dominion::events.
+ */
+public interface Events {
+
+    /**
+     * Drains the events of the last completed tick involving a component type.
+     * CREATED and DELETED events involve the types of the entity composition, MODIFIED events involve the types of
+     * both the previous and the new composition.
+     *
+     * @param componentType the component type, or null to drain all the events
+     * @param handler       the handler of each event, called in recording order
+     * @return the number of drained events
+     */
+    int drain(Class<?> componentType, Handler handler);
+
+    /**
+     * Provides the number of events recorded in the last completed tick.
+     *
+     * @return the number of events
+     */
+    int size();
+
+    /**
+     * The kind of structural change.
+     */
+    enum Kind {
+        CREATED, DELETED, MODIFIED
+    }
+
+    /**
+     * A Handler receives the drained events one by one.
+     */
+    @FunctionalInterface
+    interface Handler {
+
+        /**
+         * Handles an event. A deleted entity is only provided to release its references.
+         *
+         * @param kind   the kind of the event
+         * @param entity the entity
+         */
+        void handle(Kind kind, Entity entity);
+    }
+}
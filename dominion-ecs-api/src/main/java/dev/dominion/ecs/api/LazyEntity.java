@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a component type whose entities are stored as plain slots, without any Entity object, until one is requested.
+ * Every composition that contains such a type only keeps the component columns: an Entity object is created on the
+ * first access from an entity iterator, a stream or a Results.Chunk and is then kept until the entity is deleted.
+ * It fits large populations of short-lived entities, like particles or projectiles, that are only processed through
+ * their components.
+ * Bulk creations of such compositions do not return any Entity.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface LazyEntity {
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks an enum type whose values partition the component storage of the entities they are set to.
+ * Each state value keeps its own contiguous copy of the composition columns: Entity::setState moves the entity
+ * components into the partition of the new state, and Results::withState scans that partition linearly instead of
+ * following the entity references of a plain state.
+ * It fits states that are filtered on every tick over large populations and that change less often than they are
+ * read. An entity is stored in one partition at a time, while states of enum types without this annotation are kept
+ * along with the partitioned one.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PartitionedState {
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a record component type whose fields are all int, long, float or double, so that Dominion can store it as
+ * parallel primitive columns instead of one heap object for each entity.
+ * Primitive components are still provided as records by iterators and streams, but the values are read from the
+ * columns on every access: systems that need the raw columns can use the Results.Chunk primitive accessors.
+ * Since a new record is created on every read, replace the whole component to change its values.
+ * The record and its accessors must be reachable by reflection: declare them public or open the package.
+ * Columns can also be allocated off-heap, together with the chunk that holds them, to keep large amounts of numeric
+ * data out of reach of the garbage collector: since iterators and views created before can still read them, the
+ * columns of emptied chunks are reused by the next chunks of the same type and off-heap memory is only released when
+ * the Dominion is closed.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PrimitiveComponent {
+
+    /**
+     * Stores the columns of the component in native memory instead of primitive arrays on the heap.
+     * Off-heap columns are only accessible element by element through the Results.Chunk get/set accessors.
+     *
+     * @return true to store the columns off-heap
+     */
+    boolean offHeap() default false;
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method of a system class whose parameters are the component types to be found, in any number, plus an
+ * optional {@link Entity} parameter.
+ * The dominion-ecs-processor annotation processor generates at build time a SystemNameQueries class with a method
+ * of the same name that finds the compositions, resolves the columns once and calls the annotated method for each
+ * found entity with a straight loop over the chunk arrays, without reflection and without allocating any result.
+ * Annotated methods must not be private or static, and {@link PrimitiveComponent} types are not supported.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Query {
+}
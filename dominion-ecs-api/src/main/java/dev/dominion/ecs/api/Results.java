@@ -6,6 +6,7 @@
 package dev.dominion.ecs.api;
 
 import java.util.Iterator;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -28,11 +29,187 @@ public interface Results<T> {
 
     /**
      * Creates a sequential stream to supports functional-style operations on found entities.
+     * The stream is sized and splits by composition, chunk and index range, so it can be turned into
+     * an efficient parallel stream by calling parallel().
      *
      * @return the stream
      */
     Stream<T> stream();
 
+    /**
+     * Provides a cursor to retrieve found entities in sequence without allocating a result for each entity.
+     * The same cursor is re-pointed at the next entity on every advance, so that iterating does not produce garbage.
+     *
+     * @return a new cursor
+     */
+    Cursor cursor();
+
+    /**
+     * Performs the given action for each chunk of found entities.
+     * A chunk exposes the components of the required types as plain arrays, one column for each type, so the action
+     * can run tight loops over them without any per-entity allocation.
+     *
+     * @param action the action to be performed for each chunk
+     * @throws UnsupportedOperationException if the Results has been filtered by state
+     */
+    void forEachChunk(Consumer<? super Chunk> action);
+
+    /**
+     * Performs the given action for each found entity, passing the components in the order of the required types.
+     * Entities are visited with nested loops over compositions, chunks and slots without creating iterators or
+     * results, while Results filtered by state or by changedSince and primitive components fall back to a cursor.
+     *
+     * @param action the action receiving the components of each entity
+     * @param <T1>   the 1st component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1> void forEach(Consumer1<T1> action);
+
+    /**
+     * Performs the given action for each found entity, passing the components in the order of the required types.
+     * Entities are visited with nested loops over compositions, chunks and slots without creating iterators or
+     * results, while Results filtered by state or by changedSince and primitive components fall back to a cursor.
+     *
+     * @param action the action receiving the components of each entity
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2> void forEach(Consumer2<T1, T2> action);
+
+    /**
+     * Performs the given action for each found entity, passing the components in the order of the required types.
+     * Entities are visited with nested loops over compositions, chunks and slots without creating iterators or
+     * results, while Results filtered by state or by changedSince and primitive components fall back to a cursor.
+     *
+     * @param action the action receiving the components of each entity
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3> void forEach(Consumer3<T1, T2, T3> action);
+
+    /**
+     * Performs the given action for each found entity, passing the components in the order of the required types.
+     * Entities are visited with nested loops over compositions, chunks and slots without creating iterators or
+     * results, while Results filtered by state or by changedSince and primitive components fall back to a cursor.
+     *
+     * @param action the action receiving the components of each entity
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @param <T4>   the 4th component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3, T4> void forEach(Consumer4<T1, T2, T3, T4> action);
+
+    /**
+     * Performs the given action for each found entity, passing the components in the order of the required types.
+     * Entities are visited with nested loops over compositions, chunks and slots without creating iterators or
+     * results, while Results filtered by state or by changedSince and primitive components fall back to a cursor.
+     *
+     * @param action the action receiving the components of each entity
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @param <T4>   the 4th component type
+     * @param <T5>   the 5th component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3, T4, T5> void forEach(Consumer5<T1, T2, T3, T4, T5> action);
+
+    /**
+     * Performs the given action for each found entity, passing the components in the order of the required types.
+     * Entities are visited with nested loops over compositions, chunks and slots without creating iterators or
+     * results, while Results filtered by state or by changedSince and primitive components fall back to a cursor.
+     *
+     * @param action the action receiving the components of each entity
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @param <T4>   the 4th component type
+     * @param <T5>   the 5th component type
+     * @param <T6>   the 6th component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3, T4, T5, T6> void forEach(Consumer6<T1, T2, T3, T4, T5, T6> action);
+
+    /**
+     * Performs the given action for each found entity, passing the entity followed by the components in the order
+     * of the required types, as forEach does.
+     *
+     * @param action the action receiving each entity and its components
+     * @param <T1>   the 1st component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1> void forEachWithEntity(EntityConsumer1<T1> action);
+
+    /**
+     * Performs the given action for each found entity, passing the entity followed by the components in the order
+     * of the required types, as forEach does.
+     *
+     * @param action the action receiving each entity and its components
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2> void forEachWithEntity(EntityConsumer2<T1, T2> action);
+
+    /**
+     * Performs the given action for each found entity, passing the entity followed by the components in the order
+     * of the required types, as forEach does.
+     *
+     * @param action the action receiving each entity and its components
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3> void forEachWithEntity(EntityConsumer3<T1, T2, T3> action);
+
+    /**
+     * Performs the given action for each found entity, passing the entity followed by the components in the order
+     * of the required types, as forEach does.
+     *
+     * @param action the action receiving each entity and its components
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @param <T4>   the 4th component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3, T4> void forEachWithEntity(EntityConsumer4<T1, T2, T3, T4> action);
+
+    /**
+     * Performs the given action for each found entity, passing the entity followed by the components in the order
+     * of the required types, as forEach does.
+     *
+     * @param action the action receiving each entity and its components
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @param <T4>   the 4th component type
+     * @param <T5>   the 5th component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3, T4, T5> void forEachWithEntity(EntityConsumer5<T1, T2, T3, T4, T5> action);
+
+    /**
+     * Performs the given action for each found entity, passing the entity followed by the components in the order
+     * of the required types, as forEach does.
+     *
+     * @param action the action receiving each entity and its components
+     * @param <T1>   the 1st component type
+     * @param <T2>   the 2nd component type
+     * @param <T3>   the 3rd component type
+     * @param <T4>   the 4th component type
+     * @param <T5>   the 5th component type
+     * @param <T6>   the 6th component type
+     * @throws IllegalArgumentException if the action takes more components than the required types
+     */
+    <T1, T2, T3, T4, T5, T6> void forEachWithEntity(EntityConsumer6<T1, T2, T3, T4, T5, T6> action);
+
     /**
      * Provides a filtered Results without one or more component types to exclude.
      *
@@ -51,6 +228,8 @@ public interface Results<T> {
 
     /**
      * Provides a filtered Results with only entities having the required state.
+     * States of different enumeration types are combined: withState(a).withState(b) only provides entities having
+     * both states, while a state replaces the required state of the same type.
      *
      * @param state the requested state
      * @param <S>   the state enumeration type
@@ -58,6 +237,490 @@ public interface Results<T> {
      */
     <S extends Enum<S>> Results<T> withState(S state);
 
+    /**
+     * Provides a filtered Results with only entities created, modified or marked as changed at the given tick or later.
+     * Whole chunks without any change are skipped without visiting their entities, while the chunks provided by
+     * forEachChunk can still contain unchanged entities that can be recognized by Chunk::isChanged.
+     * Streams of filtered Results are not SIZED.
+     *
+     * @param tick the oldest tick of the changes to be found, as provided by Dominion::currentTick
+     * @return the Results with only changed entities
+     */
+    Results<T> changedSince(long tick);
+
+    /**
+     * Compiles the Results into a persistent query to be kept and reused on every tick, instead of finding the
+     * compositions again at each call.
+     * The matching compositions are held in a plain array that is kept up to date when new compositions are created,
+     * and the compiled query stays registered until it is released or no longer referenced.
+     *
+     * @return the compiled Results
+     */
+    Results<T> compile();
+
+    /**
+     * Releases a compiled Results, which is no longer kept up to date and finds the compositions again at each call.
+     *
+     * @return the released Results
+     */
+    Results<T> release();
+
+    /**
+     * A Cursor is a single mutable view of the found entities, re-pointed at the next entity on every advance.
+     * Components and entity provided by the cursor are only valid until the next advance.
+     * Components are indexed by the order of the required component types.
+     */
+    interface Cursor {
+
+        /**
+         * Moves the cursor to the next found entity.
+         *
+         * @return false if there are no more entities
+         */
+        boolean advance();
+
+        /**
+         * Provides the component of the required type at the given position for the current entity.
+         *
+         * @param index the position of the required component type
+         * @param <C>   the component type
+         * @return the component
+         */
+        <C> C get(int index);
+
+        /**
+         * Provides the current entity.
+         *
+         * @return the entity, or null if the Results have been found with findCompositionsWith
+         */
+        Entity entity();
+    }
+
+    /**
+     * A Chunk is a view of a block of entities stored contiguously by Dominion.
+     * Columns are indexed by the order of the required component types and hold the components of the entities from
+     * index 0 to size() - 1, the arrays can be longer than the chunk size.
+     * Replacing an element of a column replaces the component of the related entity.
+     * Components of {@link PrimitiveComponent} types are exposed as one primitive column for each record field, and
+     * writing an element of such a column changes the field value of the related entity.
+     * A Chunk view and its arrays are only valid during the forEachChunk action call.
+     */
+    interface Chunk {
+
+        /**
+         * Provides the number of entities in the chunk.
+         *
+         * @return the chunk size
+         */
+        int size();
+
+        /**
+         * Provides the column of components of the required type at the given position.
+         *
+         * @param index the position of the required component type
+         * @return the column of components, or null if the type is a {@link PrimitiveComponent}
+         */
+        Object[] column(int index);
+
+        /**
+         * Provides the int field column of a {@link PrimitiveComponent} type at the given position.
+         *
+         * @param index the position of the required component type
+         * @param field the position of the field in the record declaration
+         * @return the column of field values, or null if the component is stored off-heap
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not an int
+         */
+        int[] intColumn(int index, int field);
+
+        /**
+         * Provides the int field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @return the field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not an int
+         */
+        int getInt(int index, int field, int entity);
+
+        /**
+         * Sets the int field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @param value  the new field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not an int
+         */
+        void setInt(int index, int field, int entity, int value);
+
+        /**
+         * Provides the long field column of a {@link PrimitiveComponent} type at the given position.
+         *
+         * @param index the position of the required component type
+         * @param field the position of the field in the record declaration
+         * @return the column of field values, or null if the component is stored off-heap
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a long
+         */
+        long[] longColumn(int index, int field);
+
+        /**
+         * Provides the long field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @return the field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a long
+         */
+        long getLong(int index, int field, int entity);
+
+        /**
+         * Sets the long field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @param value  the new field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a long
+         */
+        void setLong(int index, int field, int entity, long value);
+
+        /**
+         * Provides the float field column of a {@link PrimitiveComponent} type at the given position.
+         *
+         * @param index the position of the required component type
+         * @param field the position of the field in the record declaration
+         * @return the column of field values, or null if the component is stored off-heap
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a float
+         */
+        float[] floatColumn(int index, int field);
+
+        /**
+         * Provides the float field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @return the field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a float
+         */
+        float getFloat(int index, int field, int entity);
+
+        /**
+         * Sets the float field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @param value  the new field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a float
+         */
+        void setFloat(int index, int field, int entity, float value);
+
+        /**
+         * Provides the double field column of a {@link PrimitiveComponent} type at the given position.
+         *
+         * @param index the position of the required component type
+         * @param field the position of the field in the record declaration
+         * @return the column of field values, or null if the component is stored off-heap
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a double
+         */
+        double[] doubleColumn(int index, int field);
+
+        /**
+         * Provides the double field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @return the field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a double
+         */
+        double getDouble(int index, int field, int entity);
+
+        /**
+         * Sets the double field value of a {@link PrimitiveComponent} type at the given position, stored on-heap or off-heap.
+         *
+         * @param index  the position of the required component type
+         * @param field  the position of the field in the record declaration
+         * @param entity the index of the entity in the chunk
+         * @param value  the new field value
+         * @throws IllegalArgumentException if the type is not a primitive component or the field is not a double
+         */
+        void setDouble(int index, int field, int entity, double value);
+
+        /**
+         * Provides the entity at the given index.
+         *
+         * @param index the index of the entity in the chunk
+         * @return the entity
+         */
+        Entity entity(int index);
+
+        /**
+         * Checks if the entity at the given index has changed since the tick required by Results::changedSince.
+         *
+         * @param index the index of the entity in the chunk
+         * @return true if changed, always true if the Results has not been filtered by changes
+         */
+        boolean isChanged(int index);
+
+        /**
+         * Marks the entity at the given index as changed in the current tick, after writing the elements of a column.
+         * The primitive field setters mark the entity by themselves.
+         *
+         * @param index the index of the entity in the chunk
+         */
+        void markChanged(int index);
+    }
+
+    /**
+     * Represents an action receiving the components of a found entity, used by forEach.
+     *
+     * @param <T1> the 1st component type
+     */
+    @FunctionalInterface
+    interface Consumer1<T1> {
+        /**
+         * Performs the action on the components of a found entity.
+         *
+         * @param comp1 the 1st component
+         */
+        void accept(T1 comp1);
+    }
+
+    /**
+     * Represents an action receiving the components of a found entity, used by forEach.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     */
+    @FunctionalInterface
+    interface Consumer2<T1, T2> {
+        /**
+         * Performs the action on the components of a found entity.
+         *
+         * @param comp1 the 1st component
+         * @param comp2 the 2nd component
+         */
+        void accept(T1 comp1, T2 comp2);
+    }
+
+    /**
+     * Represents an action receiving the components of a found entity, used by forEach.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     */
+    @FunctionalInterface
+    interface Consumer3<T1, T2, T3> {
+        /**
+         * Performs the action on the components of a found entity.
+         *
+         * @param comp1 the 1st component
+         * @param comp2 the 2nd component
+         * @param comp3 the 3rd component
+         */
+        void accept(T1 comp1, T2 comp2, T3 comp3);
+    }
+
+    /**
+     * Represents an action receiving the components of a found entity, used by forEach.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     * @param <T4> the 4th component type
+     */
+    @FunctionalInterface
+    interface Consumer4<T1, T2, T3, T4> {
+        /**
+         * Performs the action on the components of a found entity.
+         *
+         * @param comp1 the 1st component
+         * @param comp2 the 2nd component
+         * @param comp3 the 3rd component
+         * @param comp4 the 4th component
+         */
+        void accept(T1 comp1, T2 comp2, T3 comp3, T4 comp4);
+    }
+
+    /**
+     * Represents an action receiving the components of a found entity, used by forEach.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     * @param <T4> the 4th component type
+     * @param <T5> the 5th component type
+     */
+    @FunctionalInterface
+    interface Consumer5<T1, T2, T3, T4, T5> {
+        /**
+         * Performs the action on the components of a found entity.
+         *
+         * @param comp1 the 1st component
+         * @param comp2 the 2nd component
+         * @param comp3 the 3rd component
+         * @param comp4 the 4th component
+         * @param comp5 the 5th component
+         */
+        void accept(T1 comp1, T2 comp2, T3 comp3, T4 comp4, T5 comp5);
+    }
+
+    /**
+     * Represents an action receiving the components of a found entity, used by forEach.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     * @param <T4> the 4th component type
+     * @param <T5> the 5th component type
+     * @param <T6> the 6th component type
+     */
+    @FunctionalInterface
+    interface Consumer6<T1, T2, T3, T4, T5, T6> {
+        /**
+         * Performs the action on the components of a found entity.
+         *
+         * @param comp1 the 1st component
+         * @param comp2 the 2nd component
+         * @param comp3 the 3rd component
+         * @param comp4 the 4th component
+         * @param comp5 the 5th component
+         * @param comp6 the 6th component
+         */
+        void accept(T1 comp1, T2 comp2, T3 comp3, T4 comp4, T5 comp5, T6 comp6);
+    }
+
+    /**
+     * Represents an action receiving a found entity followed by its components, used by forEachWithEntity.
+     *
+     * @param <T1> the 1st component type
+     */
+    @FunctionalInterface
+    interface EntityConsumer1<T1> {
+        /**
+         * Performs the action on a found entity and its components.
+         *
+         * @param entity the found entity
+         * @param comp1  the 1st component
+         */
+        void accept(Entity entity, T1 comp1);
+    }
+
+    /**
+     * Represents an action receiving a found entity followed by its components, used by forEachWithEntity.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     */
+    @FunctionalInterface
+    interface EntityConsumer2<T1, T2> {
+        /**
+         * Performs the action on a found entity and its components.
+         *
+         * @param entity the found entity
+         * @param comp1  the 1st component
+         * @param comp2  the 2nd component
+         */
+        void accept(Entity entity, T1 comp1, T2 comp2);
+    }
+
+    /**
+     * Represents an action receiving a found entity followed by its components, used by forEachWithEntity.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     */
+    @FunctionalInterface
+    interface EntityConsumer3<T1, T2, T3> {
+        /**
+         * Performs the action on a found entity and its components.
+         *
+         * @param entity the found entity
+         * @param comp1  the 1st component
+         * @param comp2  the 2nd component
+         * @param comp3  the 3rd component
+         */
+        void accept(Entity entity, T1 comp1, T2 comp2, T3 comp3);
+    }
+
+    /**
+     * Represents an action receiving a found entity followed by its components, used by forEachWithEntity.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     * @param <T4> the 4th component type
+     */
+    @FunctionalInterface
+    interface EntityConsumer4<T1, T2, T3, T4> {
+        /**
+         * Performs the action on a found entity and its components.
+         *
+         * @param entity the found entity
+         * @param comp1  the 1st component
+         * @param comp2  the 2nd component
+         * @param comp3  the 3rd component
+         * @param comp4  the 4th component
+         */
+        void accept(Entity entity, T1 comp1, T2 comp2, T3 comp3, T4 comp4);
+    }
+
+    /**
+     * Represents an action receiving a found entity followed by its components, used by forEachWithEntity.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     * @param <T4> the 4th component type
+     * @param <T5> the 5th component type
+     */
+    @FunctionalInterface
+    interface EntityConsumer5<T1, T2, T3, T4, T5> {
+        /**
+         * Performs the action on a found entity and its components.
+         *
+         * @param entity the found entity
+         * @param comp1  the 1st component
+         * @param comp2  the 2nd component
+         * @param comp3  the 3rd component
+         * @param comp4  the 4th component
+         * @param comp5  the 5th component
+         */
+        void accept(Entity entity, T1 comp1, T2 comp2, T3 comp3, T4 comp4, T5 comp5);
+    }
+
+    /**
+     * Represents an action receiving a found entity followed by its components, used by forEachWithEntity.
+     *
+     * @param <T1> the 1st component type
+     * @param <T2> the 2nd component type
+     * @param <T3> the 3rd component type
+     * @param <T4> the 4th component type
+     * @param <T5> the 5th component type
+     * @param <T6> the 6th component type
+     */
+    @FunctionalInterface
+    interface EntityConsumer6<T1, T2, T3, T4, T5, T6> {
+        /**
+         * Performs the action on a found entity and its components.
+         *
+         * @param entity the found entity
+         * @param comp1  the 1st component
+         * @param comp2  the 2nd component
+         * @param comp3  the 3rd component
+         * @param comp4  the 4th component
+         * @param comp5  the 5th component
+         * @param comp6  the 6th component
+         */
+        void accept(Entity entity, T1 comp1, T2 comp2, T3 comp3, T4 comp4, T5 comp5, T6 comp6);
+    }
+
     /**
      * Represents the unpacked result
      *
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.util.List;
+
+/**
+ * A SpatialIndex arranges the entities with a position component in a uniform grid of square cells, so that range
+ * and nearest neighbor queries only visit the cells around the query point instead of scanning every entity.
+ * The index is kept up to date by Dominion when entities are created, deleted or moved to another composition.
+ * Positions changed in place must be followed by Entity::markChanged or Results.Chunk::markChanged to move their
+ * entity to the new cell.
+ * The cell size should be in the order of the usual query radius: smaller cells make queries visit more cells,
+ * larger cells make them check more entities.
+ *
+ * @param <T> the position component type
+ */
+public interface SpatialIndex<T> {
+
+    /**
+     * Finds the entities within the given distance from a point.
+     *
+     * @param x      the x coordinate of the point
+     * @param y      the y coordinate of the point
+     * @param radius the maximum distance from the point
+     * @return the found entities with their position, in no particular order
+     */
+    List<Results.With1<T>> findInRange(double x, double y, double radius);
+
+    /**
+     * Finds the entities nearest to a point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param k the maximum number of entities to find
+     * @return up to k found entities with their position, from the nearest one
+     * @throws IllegalArgumentException if k is negative
+     */
+    List<Results.With1<T>> findNearest(double x, double y, int k);
+
+    /**
+     * Provides the number of indexed entities.
+     *
+     * @return the number of entities with a position
+     */
+    int size();
+}
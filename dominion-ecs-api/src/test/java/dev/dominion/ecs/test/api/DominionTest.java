@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 @SuppressWarnings("resource")
 public class DominionTest {
@@ -67,11 +69,31 @@ public class DominionTest {
             return null;
         }
 
+        @Override
+        public Entity[] createEntities(int count, Composition.OfTypes composition, Composition.Filler filler) {
+            return null;
+        }
+
         @Override
         public boolean deleteEntity(Entity entity) {
             return false;
         }
 
+        @Override
+        public int deleteEntities(Results<?> results) {
+            return 0;
+        }
+
+        @Override
+        public Entity getEntity(long handle) {
+            return null;
+        }
+
+        @Override
+        public int modifyEntities(Results<?> results, Composition.Modifier modifier, Composition.Filler filler) {
+            return 0;
+        }
+
         @Override
         public boolean modifyEntity(Composition.Modifier modifier) {
             return false;
@@ -82,6 +104,36 @@ public class DominionTest {
             return null;
         }
 
+        @Override
+        public int compact(int budget) {
+            return 0;
+        }
+
+        @Override
+        public long currentTick() {
+            return 0;
+        }
+
+        @Override
+        public long advanceTick() {
+            return 0;
+        }
+
+        @Override
+        public Events events() {
+            return null;
+        }
+
+        @Override
+        public <T, K> ComponentIndex<K> createIndex(Class<T> componentType, Function<? super T, ? extends K> keyExtractor) {
+            return null;
+        }
+
+        @Override
+        public <T> SpatialIndex<T> createSpatialIndex(Class<T> positionType, ToDoubleFunction<? super T> x, ToDoubleFunction<? super T> y, double cellSize) {
+            return null;
+        }
+
         @Override
         public Scheduler createScheduler() {
             return null;
@@ -117,6 +169,11 @@ public class DominionTest {
             return null;
         }
 
+        @Override
+        public Results<Object[]> findCompositionsWithAll(Class<?>... types) {
+            return null;
+        }
+
         @Override
         public <T> Results<Results.With1<T>> findEntitiesWith(Class<T> type) {
             return null;
@@ -96,6 +96,19 @@ public class EntityRepositoryBenchmark extends DominionBenchmark {
             }
         }
 
+        @Benchmark
+        public void createEntities(Blackhole bh) {
+            Composition.OfTypes composition = getPreparedInput();
+            if (composition == null) {
+                return;
+            }
+            Object[] input = getInput();
+            Entity[] created = entityRepository.createEntities(size, composition,
+                    (index, components) -> System.arraycopy(input, 0, components, 0, components.length));
+            System.arraycopy(created, 0, entities, 0, size);
+            bh.consume(created);
+        }
+
         public void onSetup() {
         }
 
@@ -813,4 +826,53 @@ public class EntityRepositoryBenchmark extends DominionBenchmark {
 //            }
 //        }
 //    }
+
+    // gc.alloc.rate.norm is reported in bytes per entity by running with the GC profiler
+
+    @OperationsPerInvocation(FindComponentsWithCursor.SIZE)
+    public static class FindComponentsWithCursor extends DominionBenchmark {
+        static final int SIZE = 1_000_000;
+        EntityRepository entityRepository;
+
+        public static void main(String[] args) throws Exception {
+            org.openjdk.jmh.Main.main(
+                    new String[]{fetchBenchmarkName(FindComponentsWithCursor.class), "-prof", "gc"}
+            );
+        }
+
+        @Setup()
+        public void setup() {
+            entityRepository = (EntityRepository) new EntityRepository.Factory().create();
+            Object[] comps = new Object[]{new C1(0), new C2(0)};
+            for (int i = 0; i < SIZE; i++) {
+                entityRepository.createEntity(comps);
+            }
+        }
+
+        @Benchmark
+        public void iterate(Blackhole bh) {
+            var iterator = entityRepository.findEntitiesWith(C1.class, C2.class).iterator();
+            while (iterator.hasNext()) {
+                bh.consume(iterator.next().comp2());
+            }
+        }
+
+        @Benchmark
+        public void cursor(Blackhole bh) {
+            var cursor = entityRepository.findEntitiesWith(C1.class, C2.class).cursor();
+            while (cursor.advance()) {
+                bh.consume(cursor.<C2>get(1));
+            }
+        }
+
+        @Benchmark
+        public void forEach(Blackhole bh) {
+            entityRepository.findEntitiesWith(C1.class, C2.class).forEach((C1 comp1, C2 comp2) -> bh.consume(comp2));
+        }
+
+        @TearDown()
+        public void tearDown() {
+            entityRepository.close();
+        }
+    }
 }
@@ -13,8 +13,10 @@ import dev.dominion.ecs.engine.system.Logging;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
 import static dev.dominion.ecs.engine.collections.ChunkedPool.Item;
@@ -148,6 +150,59 @@ public class ChunkedPoolBenchmark extends DominionBenchmark {
     }
 
 
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public static class TenantConcurrentNextAndFreeId extends DominionBenchmark {
+        ChunkedPool.Tenant<IntEntity> tenant;
+        ExecutorService executorService;
+
+        @Param(value = {"1000000"})
+        int size;
+
+        @Param(value = {"1", "2", "4", "8"})
+        int threads;
+
+        public static void main(String[] args) throws Exception {
+            org.openjdk.jmh.Main.main(
+                    new String[]{fetchBenchmarkName(TenantConcurrentNextAndFreeId.class)}
+            );
+        }
+
+        @SuppressWarnings("resource")
+        @Setup(Level.Iteration)
+        public void setup() {
+            tenant = new ChunkedPool<IntEntity>(ID_SCHEMA, Logging.Context.TEST).newTenant();
+            executorService = Executors.newFixedThreadPool(threads);
+        }
+
+        @Benchmark
+        public void nextAndFreeId() throws Exception {
+            int batch = size / threads;
+            List<Callable<Void>> tasks = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    int[] ids = new int[batch];
+                    for (int i = 0; i < batch; i++) {
+                        ids[i] = tenant.nextId();
+                    }
+                    for (int i = batch - 1; i >= 0; i--) {
+                        tenant.freeId(ids[i], false, false);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executorService.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            executorService.shutdown();
+            tenant.close();
+        }
+    }
+
+
     public static class TenantIterator extends DominionBenchmark {
         ChunkedPool.Tenant<TestItem> tenant;
 
@@ -193,7 +248,7 @@ public class ChunkedPoolBenchmark extends DominionBenchmark {
             }
 
             @Override
-            public void setStateId(int id) {
+            public void setState(ChunkedPool.LinkedChunk<? extends Item> stateChunk, int stateId) {
             }
 
             @Override
@@ -206,7 +261,7 @@ public class ChunkedPoolBenchmark extends DominionBenchmark {
             }
 
             @Override
-            public void setStateChunk(ChunkedPool.LinkedChunk<? extends Item> chunk) {
+            public void clearState(ChunkedPool.LinkedChunk<? extends Item> stateChunk) {
             }
         }
     }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.benchmarks.collections;
+
+import dev.dominion.ecs.engine.benchmarks.DominionBenchmark;
+import dev.dominion.ecs.engine.collections.PrimitiveColumns;
+import dev.dominion.ecs.engine.collections.PrimitiveLayout;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading records from primitive columns with reading them from an object column, to be run with the gc
+ * profiler: gc.alloc.rate.norm shows that a read only allocates the returned record, while the spreading read that
+ * boxed every field in an Object[] allocated several times as much.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrimitiveColumnsBenchmark extends DominionBenchmark {
+    PrimitiveColumns columns;
+    Object[] objects;
+    MethodHandle spreader;
+
+    @Param(value = {"1000"})
+    int size;
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(
+                new String[]{fetchBenchmarkName(PrimitiveColumnsBenchmark.class), "-prof", "gc"}
+        );
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() throws ReflectiveOperationException {
+        PrimitiveLayout layout = PrimitiveLayout.of(Position.class);
+        columns = PrimitiveColumns.of(layout, size);
+        objects = new Object[size];
+        for (int i = 0; i < size; i++) {
+            Position position = new Position(i, i, i * .5f, i * .5);
+            columns.write(i, position);
+            objects[i] = position;
+        }
+        spreader = MethodHandles.lookup()
+                .findConstructor(Position.class,
+                        MethodType.methodType(void.class, int.class, long.class, float.class, double.class))
+                .asType(MethodType.genericMethodType(4))
+                .asSpreader(Object[].class, 4);
+    }
+
+    @Benchmark
+    public void objectColumn(Blackhole bh) {
+        for (int i = 0; i < size; i++) {
+            bh.consume(objects[i]);
+        }
+    }
+
+    @Benchmark
+    public void read(Blackhole bh) {
+        for (int i = 0; i < size; i++) {
+            bh.consume(columns.read(i));
+        }
+    }
+
+    @Benchmark
+    public void spreadingRead(Blackhole bh) throws Throwable {
+        for (int i = 0; i < size; i++) {
+            Object[] values = new Object[]{
+                    columns.getInt(0, i), columns.getLong(1, i), columns.getFloat(2, i), columns.getDouble(3, i)
+            };
+            bh.consume((Object) spreader.invokeExact(values));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        columns.close();
+    }
+
+    public record Position(int id, long time, float x, double y) {
+    }
+}
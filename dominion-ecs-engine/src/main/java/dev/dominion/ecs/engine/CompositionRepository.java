@@ -7,15 +7,19 @@ package dev.dominion.ecs.engine;
 
 import dev.dominion.ecs.api.Composition;
 import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.Events;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
+import dev.dominion.ecs.engine.collections.HandleTable;
 import dev.dominion.ecs.engine.system.ClassIndex;
 import dev.dominion.ecs.engine.system.Config;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
 
@@ -24,12 +28,16 @@ public final class CompositionRepository implements AutoCloseable {
     private final NodeCache nodeCache = new NodeCache();
     private final ClassIndex classIndex;
     private final ChunkedPool<IntEntity> pool;
+    private final HandleTable<IntEntity> handles = new HandleTable<>();
     private final IdSchema idSchema;
     private final PreparedComposition preparedComposition;
     private final Map<Class<?>, Composition.ByAdding1AndRemoving<?>> addingTypeModifiers = new ConcurrentHashMap<>();
     private final Map<Class<?>, Composition.ByRemoving> removingTypeModifiers = new ConcurrentHashMap<>();
     private final Node root;
+    private volatile Node[] composedNodes = new Node[0];
     private final Logging.Context loggingContext;
+    private volatile EventLog events;
+    private volatile EntityIndex[] indexes = new EntityIndex[0];
 
     public CompositionRepository(Logging.Context loggingContext) {
         this(Config.DEFAULT_CLASS_INDEX_BIT
@@ -39,6 +47,10 @@ public final class CompositionRepository implements AutoCloseable {
     }
 
     public CompositionRepository(int classIndexBit, int chunkBit, Logging.Context loggingContext) {
+        this(classIndexBit, chunkBit, Config.DEFAULT_INITIAL_CHUNK_BIT, loggingContext);
+    }
+
+    public CompositionRepository(int classIndexBit, int chunkBit, int initialChunkBit, Logging.Context loggingContext) {
         classIndex = new ClassIndex(classIndexBit, true, loggingContext);
         chunkBit = Math.max(IdSchema.MIN_CHUNK_BIT, Math.min(chunkBit, IdSchema.MAX_CHUNK_BIT));
         idSchema = new IdSchema(chunkBit);
@@ -50,7 +62,8 @@ public final class CompositionRepository implements AutoCloseable {
                     )
             );
         }
-        pool = new ChunkedPool<>(idSchema, loggingContext);
+        initialChunkBit = Math.max(0, Math.min(initialChunkBit, chunkBit));
+        pool = new ChunkedPool<>(idSchema, 1 << initialChunkBit, loggingContext);
         preparedComposition = new PreparedComposition(this);
         root = new Node();
         root.composition = new DataComposition(this, pool, classIndex, idSchema, loggingContext);
@@ -159,12 +172,14 @@ public final class CompositionRepository implements AutoCloseable {
         }
         int prevId = entity.getId();
         ChunkedPool.Tenant<IntEntity> prevTenant = entity.getChunk().getTenant();
+        DataComposition prevComposition = (DataComposition) prevTenant.getOwner();
         targetComposition.target().attachEntity(entity, targetComposition.indexMapping(), targetComposition.addedIndexMapping(), addedComponent, addedComponents);
         prevTenant.freeId(prevId);
-        if (entity.stateChunk != null) {
-            ChunkedPool.Tenant<IntEntity> prevStateTenant = entity.stateChunk.getTenant();
-            prevStateTenant.freeStateId(entity.getStateId());
-            entity.stateChunk = targetComposition.target().fetchStateTenants((IndexKey) prevStateTenant.getSubject()).registerState(entity);
+        entity.moveStates(targetComposition.target(), true);
+        updateIndexes(entity, targetComposition.target());
+        EventLog eventLog = events;
+        if (eventLog != null) {
+            eventLog.record(Events.Kind.MODIFIED, entity, prevComposition, targetComposition.target());
         }
     }
 
@@ -209,66 +224,176 @@ public final class CompositionRepository implements AutoCloseable {
                             , "Find entities with " + Arrays.toString(componentTypes))
             );
         }
-        switch (componentTypes.length) {
-            case 0:
-                return null;
-            case 1:
-                Node node = nodeCache.getNode(new IndexKey(classIndex.getIndex(componentTypes[0])));
-                return node == null ? null : node.copyOfLinkedNodes();
-            default:
-                Map<IndexKey, Node> currentCompositions = null;
-                for (int i = 0; i < componentTypes.length; i++) {
-                    node = nodeCache.getNode(new IndexKey(classIndex.getIndex(componentTypes[i])));
-                    if (node == null) {
-                        return null;
-                    }
-                    currentCompositions = currentCompositions == null ?
-                            node.copyOfLinkedNodes() :
-                            intersect(currentCompositions, node.linkedNodes)
-                    ;
-                }
-                return currentCompositions;
+        if (componentTypes.length == 0) {
+            return null;
+        }
+        long[] bits = classIndex.getIndexBits(componentTypes);
+        Map<IndexKey, Node> nodeMap = new HashMap<>();
+        Node[] nodes = composedNodes;
+        for (int i = 0; i < nodes.length; i++) {
+            Node node = nodes[i];
+            if (node.composition.hasAllComponentBits(bits)) {
+                nodeMap.put(node.key, node);
+            }
         }
+        return nodeMap;
     }
 
     public void mapWithout(Map<IndexKey, Node> nodeMap, Class<?>... componentTypes) {
-        for (Class<?> componentType : componentTypes) {
-            IndexKey indexKey = new IndexKey(classIndex.getIndex(componentType));
-            nodeMap.remove(indexKey);
-            Node node = nodeCache.getNode(indexKey);
-            if (node != null) {
-                for (IndexKey linkedNodeKey : node.linkedNodes.keySet()) {
-                    nodeMap.remove(linkedNodeKey);
+        long[] bits = classIndex.getIndexBits(componentTypes);
+        nodeMap.values().removeIf(node -> node.composition.hasAnyComponentBits(bits));
+    }
+
+    public void mapWithAlso(Map<IndexKey, Node> nodeMap, Class<?>... componentTypes) {
+        long[] bits = classIndex.getIndexBits(componentTypes);
+        nodeMap.values().removeIf(node -> !node.composition.hasAllComponentBits(bits));
+    }
+
+    /**
+     * Returns the compositions created so far, without their partitions.
+     */
+    public DataComposition[] getCompositions() {
+        Node[] nodes = composedNodes;
+        DataComposition[] compositions = new DataComposition[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            compositions[i] = nodes[i].composition;
+        }
+        return compositions;
+    }
+
+    private synchronized void addComposedNode(Node node) {
+        Node[] nodes = Arrays.copyOf(composedNodes, composedNodes.length + 1);
+        nodes[nodes.length - 1] = node;
+        composedNodes = nodes;
+    }
+
+    public int compact(int budget) {
+        int moved = root.composition.compact(budget);
+        for (Node node : nodeCache.data.values()) {
+            DataComposition composition;
+            if (moved >= budget) {
+                break;
+            }
+            if ((composition = node.composition) != null) {
+                moved += composition.compact(budget - moved);
+            }
+        }
+        return moved;
+    }
+
+    public ClassIndex getClassIndex() {
+        return classIndex;
+    }
+
+    public HandleTable<IntEntity> getHandles() {
+        return handles;
+    }
+
+    public ChunkedPool<IntEntity> getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the event log, or null if no event has been required yet.
+     */
+    public EventLog getEvents() {
+        return events;
+    }
+
+    public EventLog fetchEvents() {
+        EventLog eventLog = events;
+        if (eventLog == null) {
+            synchronized (this) {
+                if ((eventLog = events) == null) {
+                    events = eventLog = new EventLog();
                 }
             }
         }
+        return eventLog;
     }
 
-    public void mapWithAlso(Map<IndexKey, Node> nodeMap, Class<?>... componentTypes) {
-        for (Class<?> componentType : componentTypes) {
-            Node node = nodeCache.getNode(new IndexKey(classIndex.getIndex(componentType)));
-            if (node == null) {
-                nodeMap.clear();
-                return;
+    /**
+     * Registers the index and fills it with the existing entities having its component type.
+     * Lazy entities of the indexed compositions are materialized to be referenced by the index.
+     */
+    public <I extends EntityIndex> I addIndex(I index) {
+        synchronized (this) {
+            EntityIndex[] newIndexes = Arrays.copyOf(indexes, indexes.length + 1);
+            newIndexes[newIndexes.length - 1] = index;
+            indexes = newIndexes;
+        }
+        for (DataComposition composition : getCompositions()) {
+            indexEntities(index, composition);
+            for (DataComposition partition : composition.getPartitions()) {
+                indexEntities(index, partition);
             }
-            intersect(nodeMap, node.linkedNodes);
         }
+        return index;
     }
 
-    @SuppressWarnings("Java8CollectionRemoveIf")
-    private Map<IndexKey, Node> intersect(Map<IndexKey, Node> subject, Map<IndexKey, Node> other) {
-        Set<IndexKey> indexKeySet = subject.keySet();
-        Iterator<IndexKey> iterator = indexKeySet.iterator();
-        while (iterator.hasNext()) {
-            if (!other.containsKey(iterator.next())) {
-                iterator.remove();
+    private void indexEntities(EntityIndex index, DataComposition composition) {
+        if (!composition.hasComponentType(index.getComponentType())) {
+            return;
+        }
+        for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                IntEntity entity = chunk.fetchItem(i);
+                if (entity != null) {
+                    index.update(entity, composition);
+                }
             }
         }
-        return subject;
     }
 
-    public ClassIndex getClassIndex() {
-        return classIndex;
+    /**
+     * Checks whether any index has a component type of the given composition.
+     */
+    public boolean isIndexed(DataComposition composition) {
+        EntityIndex[] current = indexes;
+        for (int i = 0; i < current.length; i++) {
+            if (composition.hasComponentType(current[i].getComponentType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the indexes of the given component type, for the callers that write one component of many entities.
+     */
+    public EntityIndex[] getIndexes(Class<?> componentType) {
+        EntityIndex[] current = indexes;
+        EntityIndex[] found = new EntityIndex[0];
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getComponentType() == componentType) {
+                found = Arrays.copyOf(found, found.length + 1);
+                found[found.length - 1] = current[i];
+            }
+        }
+        return found;
+    }
+
+    public void updateIndexes(IntEntity entity, DataComposition composition) {
+        EntityIndex[] current = indexes;
+        for (int i = 0; i < current.length; i++) {
+            current[i].update(entity, composition);
+        }
+    }
+
+    public void removeFromIndexes(IntEntity entity) {
+        EntityIndex[] current = indexes;
+        for (int i = 0; i < current.length; i++) {
+            current[i].remove(entity);
+        }
+    }
+
+    public long advanceTick() {
+        long tick = pool.advanceTick();
+        EventLog eventLog = events;
+        if (eventLog != null) {
+            eventLog.advance();
+        }
+        return tick;
     }
 
     public Node getRoot() {
@@ -286,21 +411,29 @@ public final class CompositionRepository implements AutoCloseable {
     @Override
     public void close() {
         nodeCache.clear();
+        composedNodes = new Node[0];
+        for (EntityIndex index : indexes) {
+            index.clear();
+        }
+        indexes = new EntityIndex[0];
         classIndex.close();
         pool.close();
+        handles.close();
     }
 
     public final class NodeCache {
         private final Map<IndexKey, Node> data = new ConcurrentHashMap<>();
+        // compiled queries are held weakly, the ones discarded without being released are pruned on the next offer
+        private final List<WeakReference<ResultSet<?>>> queries = new CopyOnWriteArrayList<>();
 
         @SuppressWarnings("ForLoopReplaceableByForEach")
         public Node getOrCreateNode(IndexKey key, Class<?>... componentTypes) {
-            Node node = data.computeIfAbsent(key, k -> new Node(componentTypes));
+            Node node = data.computeIfAbsent(key, k -> new Node(k, componentTypes));
             if (componentTypes.length > 1) {
                 for (int i = 0; i < componentTypes.length; i++) {
                     Class<?> componentType = componentTypes[i];
                     IndexKey typeKey = new IndexKey(classIndex.getIndex(componentType));
-                    Node singleTypeNode = data.computeIfAbsent(typeKey, k -> new Node(componentType));
+                    Node singleTypeNode = data.computeIfAbsent(typeKey, k -> new Node(k, componentType));
                     singleTypeNode.linkNode(key, node);
                 }
             } else {
@@ -317,18 +450,55 @@ public final class CompositionRepository implements AutoCloseable {
             return data.containsKey(key);
         }
 
+        public void register(ResultSet<?> query) {
+            queries.add(new WeakReference<>(query));
+        }
+
+        public void unregister(ResultSet<?> query) {
+            queries.removeIf(reference -> {
+                ResultSet<?> registered = reference.get();
+                return registered == null || registered == query;
+            });
+        }
+
+        public void offer(DataComposition composition) {
+            boolean cleared = false;
+            for (WeakReference<ResultSet<?>> reference : queries) {
+                ResultSet<?> query = reference.get();
+                if (query == null) {
+                    cleared = true;
+                    continue;
+                }
+                query.offer(composition);
+            }
+            if (cleared) {
+                queries.removeIf(reference -> reference.get() == null);
+            }
+        }
+
+        public int getQueryCount() {
+            return queries.size();
+        }
+
         public void clear() {
             data.clear();
+            queries.clear();
         }
     }
 
     public final class Node {
         private final StampedLock lock = new StampedLock();
         private final Map<IndexKey, Node> linkedNodes = new ConcurrentHashMap<>();
+        private final IndexKey key;
         private final Class<?>[] componentTypes;
         private DataComposition composition;
 
         public Node(Class<?>... componentTypes) {
+            this(null, componentTypes);
+        }
+
+        public Node(IndexKey key, Class<?>... componentTypes) {
+            this.key = key;
             this.componentTypes = componentTypes;
             if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
                 LOGGER.log(
@@ -344,6 +514,7 @@ public final class CompositionRepository implements AutoCloseable {
 
         public DataComposition getOrCreateComposition() {
             DataComposition value;
+            boolean created = false;
             long stamp = lock.tryOptimisticRead();
             try {
                 for (; ; stamp = lock.writeLock()) {
@@ -361,14 +532,19 @@ public final class CompositionRepository implements AutoCloseable {
                     // exclusive access
                     value = composition = new DataComposition(CompositionRepository.this, pool,
                             classIndex, idSchema, loggingContext, componentTypes);
+                    created = true;
                     break;
                 }
-                return value;
             } finally {
                 if (StampedLock.isWriteLockStamp(stamp)) {
                     lock.unlockWrite(stamp);
                 }
             }
+            if (created) {
+                addComposedNode(this);
+                nodeCache.offer(value);
+            }
+            return value;
         }
 
         public DataComposition getComposition() {
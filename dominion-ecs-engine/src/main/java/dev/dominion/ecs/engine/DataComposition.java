@@ -5,40 +5,85 @@
 
 package dev.dominion.ecs.engine;
 
+import dev.dominion.ecs.api.Composition;
+import dev.dominion.ecs.api.Events;
+import dev.dominion.ecs.api.LazyEntity;
+import dev.dominion.ecs.api.PartitionedState;
+import dev.dominion.ecs.api.PrimitiveComponent;
 import dev.dominion.ecs.api.Results;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
+import dev.dominion.ecs.engine.collections.PrimitiveLayout;
 import dev.dominion.ecs.engine.system.ClassIndex;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
 
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public final class DataComposition {
     public static final int COMPONENT_INDEX_CAPACITY = 1 << 10;
     private static final System.Logger LOGGER = Logging.getLogger();
+    private static final ClassValue<PrimitiveLayout> PRIMITIVE_LAYOUTS = new ClassValue<>() {
+        @Override
+        protected PrimitiveLayout computeValue(Class<?> type) {
+            PrimitiveComponent primitiveComponent = type.getAnnotation(PrimitiveComponent.class);
+            return primitiveComponent == null ? null : PrimitiveLayout.of(type, primitiveComponent.offHeap());
+        }
+    };
+    private static final ClassValue<Boolean> PARTITIONED_STATES = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(PartitionedState.class);
+        }
+    };
+    private static final DataComposition[] NO_PARTITIONS = new DataComposition[0];
+    private static final EntityIndex[] NO_INDEXES = new EntityIndex[0];
     private final Class<?>[] componentTypes;
+    private final PrimitiveLayout[] primitiveLayouts;
+    private final boolean lazyEntities;
     private final CompositionRepository repository;
     private final ChunkedPool<IntEntity> pool;
     private final ChunkedPool.Tenant<IntEntity> tenant;
     private final ClassIndex classIndex;
     private final IdSchema idSchema;
     private final int[] componentIndex;
+    private final long[] componentBits;
     private final Map<IndexKey, ChunkedPool.Tenant<IntEntity>> stateTenants = new ConcurrentHashMap<>();
+    private final Map<List<Class<?>>, Kernel> kernels = new ConcurrentHashMap<>();
+    private final Map<IndexKey, DataComposition> partitions = new ConcurrentHashMap<>();
+    private final DataComposition partitionBase;
+    private final Enum<?> partitionState;
+    private final IndexKey partitionKey;
+    private volatile DataComposition[] partitionArray = NO_PARTITIONS;
+    private final int[] indexMapping;
     private final Logging.Context loggingContext;
 
     public DataComposition(CompositionRepository repository, ChunkedPool<IntEntity> pool
             , ClassIndex classIndex, IdSchema idSchema, Logging.Context loggingContext
             , Class<?>... componentTypes) {
+        this(repository, pool, classIndex, idSchema, loggingContext, null, null, null, componentTypes);
+    }
+
+    private DataComposition(CompositionRepository repository, ChunkedPool<IntEntity> pool
+            , ClassIndex classIndex, IdSchema idSchema, Logging.Context loggingContext
+            , DataComposition partitionBase, Enum<?> partitionState, IndexKey partitionKey
+            , Class<?>... componentTypes) {
         this.repository = repository;
         this.pool = pool;
-        this.tenant = pool == null ? null : pool.newTenant(componentTypes.length, this, "root");
+        this.partitionBase = partitionBase == null ? this : partitionBase;
+        this.partitionState = partitionState;
+        this.partitionKey = partitionKey;
+        this.primitiveLayouts = primitiveLayoutsOf(componentTypes);
+        this.lazyEntities = hasLazyEntities(componentTypes);
+        this.tenant = pool == null ? null : pool.newTenant(componentTypes.length, this,
+                partitionKey == null ? "root" : partitionKey, primitiveLayouts,
+                lazyEntities ? IntEntity::new : null);
         this.classIndex = classIndex;
         this.idSchema = idSchema;
         this.componentTypes = componentTypes;
+        this.indexMapping = new int[componentTypes.length];
+        Arrays.setAll(indexMapping, i -> i);
         this.loggingContext = loggingContext;
         if (isMultiComponent()) {
             componentIndex = new int[COMPONENT_INDEX_CAPACITY];
@@ -49,6 +94,7 @@ public final class DataComposition {
         } else {
             componentIndex = null;
         }
+        componentBits = classIndex == null ? new long[1] : classIndex.getIndexBits(componentTypes);
         if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
                     System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
@@ -57,6 +103,134 @@ public final class DataComposition {
         }
     }
 
+    private static PrimitiveLayout[] primitiveLayoutsOf(Class<?>[] componentTypes) {
+        PrimitiveLayout[] layouts = null;
+        for (int i = 0; i < componentTypes.length; i++) {
+            PrimitiveLayout layout = PRIMITIVE_LAYOUTS.get(componentTypes[i]);
+            if (layout != null) {
+                if (layouts == null) {
+                    layouts = new PrimitiveLayout[componentTypes.length];
+                }
+                layouts[i] = layout;
+            }
+        }
+        return layouts;
+    }
+
+    private static boolean hasLazyEntities(Class<?>[] componentTypes) {
+        for (Class<?> componentType : componentTypes) {
+            if (componentType.isAnnotationPresent(LazyEntity.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasLazyEntities() {
+        return lazyEntities;
+    }
+
+    /**
+     * Provides the kernel of the query shape made by the first arity types, creating and caching it at the first call.
+     */
+    public Kernel fetchKernel(Class<?>[] types, int arity) {
+        List<Class<?>> shape = List.of(arity == types.length ? types : Arrays.copyOf(types, arity));
+        Kernel kernel = kernels.get(shape);
+        return kernel != null ? kernel : kernels.computeIfAbsent(shape, k -> {
+            int[] columns = new int[arity];
+            for (int i = 0; i < arity; i++) {
+                columns[i] = isMultiComponent() ? fetchComponentIndex(types[i]) : 0;
+            }
+            return Kernel.of(columns);
+        });
+    }
+
+    public boolean hasPrimitiveComponents() {
+        return primitiveLayouts != null;
+    }
+
+    public boolean hasComponentType(Class<?> componentType) {
+        for (Class<?> type : componentTypes) {
+            if (type == componentType) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the composition has all the component types of a bitset provided by ClassIndex::getIndexBits.
+     */
+    public boolean hasAllComponentBits(long[] bits) {
+        for (int i = 0; i < bits.length; i++) {
+            long word = i < componentBits.length ? componentBits[i] : 0L;
+            if ((word & bits[i]) != bits[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the composition has any of the component types of a bitset provided by ClassIndex::getIndexBits.
+     */
+    public boolean hasAnyComponentBits(long[] bits) {
+        int length = Math.min(bits.length, componentBits.length);
+        for (int i = 0; i < length; i++) {
+            if ((componentBits[i] & bits[i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private EventLog getEvents() {
+        return repository == null ? null : repository.getEvents();
+    }
+
+    void recordEvent(Events.Kind kind, IntEntity entity) {
+        EventLog events = getEvents();
+        if (events != null) {
+            events.record(kind, entity, this, this);
+        }
+    }
+
+    /**
+     * Returns the component of the given type held by the entity in this composition, or null if the composition
+     * does not have the component type.
+     */
+    public Object getComponent(IntEntity entity, Class<?> componentType) {
+        ChunkedPool.LinkedChunk<IntEntity> chunk = entity.getChunk();
+        if (chunk == null || !hasComponentType(componentType)) {
+            return null;
+        }
+        int column = isMultiComponent() ? fetchComponentIndex(componentType) : 0;
+        return chunk.getComponent(column, idSchema.fetchObjectId(entity.getId()));
+    }
+
+    boolean isIndexed() {
+        return repository != null && repository.isIndexed(this);
+    }
+
+    /**
+     * Returns the indexes of the component type stored at the given column.
+     */
+    EntityIndex[] getIndexes(int column) {
+        return repository == null ? NO_INDEXES : repository.getIndexes(componentTypes[column]);
+    }
+
+    void updateIndexes(IntEntity entity) {
+        if (repository != null) {
+            repository.updateIndexes(entity, this);
+        }
+    }
+
+    void removeFromIndexes(IntEntity entity) {
+        if (repository != null) {
+            repository.removeFromIndexes(entity);
+        }
+    }
+
     public int length() {
         return componentTypes.length;
     }
@@ -90,14 +264,15 @@ public final class DataComposition {
         components[i] = temp;
     }
 
-    public <S extends Enum<S>> ChunkedPool.Tenant<IntEntity> fetchStateTenants(S state) {
-        return fetchStateTenants(classIndex.getIndexKeyByEnum(state));
-    }
-
-    public ChunkedPool.Tenant<IntEntity> fetchStateTenants(IndexKey key) {
-        return stateTenants.computeIfAbsent(key,
+    /**
+     * Provides the tenant that registers the entities with a state, the state itself is the subject of the tenant.
+     */
+    public ChunkedPool.Tenant<IntEntity> fetchStateTenants(Enum<?> state) {
+        IndexKey key = classIndex.getIndexKeyByEnum(state);
+        var stateTenant = stateTenants.get(key);
+        return stateTenant != null ? stateTenant : stateTenants.computeIfAbsent(key,
                 s -> {
-                    var newStateTenant = pool.newTenant(0, this, key);
+                    var newStateTenant = pool.newTenant(0, this, state, primitiveLayouts);
                     if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
                         LOGGER.log(
                                 System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
@@ -108,6 +283,81 @@ public final class DataComposition {
                 });
     }
 
+    /**
+     * Checks if the enum type of a state is annotated with PartitionedState.
+     */
+    public static boolean isPartitioned(Enum<?> state) {
+        return PARTITIONED_STATES.get(state.getDeclaringClass());
+    }
+
+    /**
+     * Provides the partition of the shared composition that stores the entities with a partitioned state, creating it
+     * at the first call and offering it to the compiled queries.
+     */
+    public DataComposition fetchPartition(Enum<?> state) {
+        if (partitionBase != this) {
+            return partitionBase.fetchPartition(state);
+        }
+        IndexKey key = classIndex.getIndexKeyByEnum(state);
+        DataComposition partition = partitions.get(key);
+        if (partition != null) {
+            return partition;
+        }
+        synchronized (partitions) {
+            partition = partitions.get(key);
+            if (partition != null) {
+                return partition;
+            }
+            partition = new DataComposition(repository, pool, classIndex, idSchema, loggingContext, this, state, key,
+                    componentTypes);
+            partitions.put(key, partition);
+            DataComposition[] newPartitions = Arrays.copyOf(partitionArray, partitionArray.length + 1);
+            newPartitions[newPartitions.length - 1] = partition;
+            partitionArray = newPartitions;
+        }
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Adding partition " + partition.tenant + " to " + this)
+            );
+        }
+        if (repository != null) {
+            repository.getNodeCache().offer(partition);
+        }
+        return partition;
+    }
+
+    public DataComposition getPartition(IndexKey key) {
+        return partitionBase.partitions.get(key);
+    }
+
+    public DataComposition[] getPartitions() {
+        return partitionArray;
+    }
+
+    public DataComposition getPartitionBase() {
+        return partitionBase;
+    }
+
+    public IndexKey getPartitionKey() {
+        return partitionKey;
+    }
+
+    public Enum<?> getPartitionState() {
+        return partitionState;
+    }
+
+    /**
+     * Moves an entity of the same composition family between the shared storage and its partitions.
+     */
+    public void movePartition(IntEntity entity, DataComposition target) {
+        int prevId = entity.getId();
+        ChunkedPool.Tenant<IntEntity> prevTenant = entity.getChunk().getTenant();
+        target.attachEntity(entity, partitionBase.indexMapping, null, null, null);
+        prevTenant.freeId(prevId);
+        entity.moveStates(target, true);
+    }
+
     public <S extends Enum<S>> ChunkedPool.Tenant<IntEntity> getStateTenant(S state) {
         return getStateTenant(classIndex.getIndexKeyByEnum(state));
     }
@@ -117,12 +367,149 @@ public final class DataComposition {
     }
 
     public IntEntity createEntity(boolean prepared, Object... components) {
-        return tenant.register(new IntEntity(tenant.nextId()),
-                !prepared && isMultiComponent() ? sortComponentsInPlaceByIndex(components) : components);
+        int id = tenant.reserveId();
+        IntEntity entity;
+        try {
+            entity = tenant.register(new IntEntity(id),
+                    !prepared && isMultiComponent() ? sortComponentsInPlaceByIndex(components) : components);
+        } finally {
+            tenant.publish(id);
+        }
+        recordEvent(Events.Kind.CREATED, entity);
+        updateIndexes(entity);
+        return entity;
+    }
+
+    public IntEntity[] createEntities(int count, int[] indexMapping, Composition.Filler filler) {
+        IntEntity[] entities = lazyEntities ? null : new IntEntity[count];
+        Object[] components = new Object[indexMapping.length];
+        boolean indexed = isIndexed();
+        int created = 0;
+        while (created < count) {
+            int firstId = tenant.nextIds(count - created);
+            ChunkedPool.LinkedChunk<IntEntity> chunk = tenant.getChunk(firstId);
+            int firstIndex = idSchema.fetchObjectId(firstId);
+            int length = Math.min(count - created, chunk.getCapacity() - firstIndex);
+            int firstCreated = created;
+            try {
+                for (int i = 0; i < length; i++, created++) {
+                    filler.fill(created, components);
+                    if (entities == null) {
+                        chunk.add(idSchema.mergeId(firstId, firstIndex + i), indexMapping, null, components);
+                        continue;
+                    }
+                    entities[created] = chunk.set(new IntEntity(idSchema.mergeId(firstId, firstIndex + i)), indexMapping, components);
+                }
+            } finally {
+                chunk.publish(length);
+            }
+            for (int i = 0; indexed && i < length; i++) {
+                updateIndexes(entities == null ? chunk.fetchItem(firstIndex + i) : entities[firstCreated + i]);
+            }
+        }
+        EventLog events = getEvents();
+        for (int i = 0; events != null && entities != null && i < count; i++) {
+            events.record(Events.Kind.CREATED, entities[i], this, this);
+        }
+        return entities;
     }
 
     public void attachEntity(IntEntity entity, int[] indexMapping, int[] addedIndexMapping, Object addedComponent, Object[] addedComponents) {
-        tenant.migrate(entity, tenant.nextId(), indexMapping, addedIndexMapping, addedComponent, addedComponents);
+        tenant.migrate(entity, tenant.reserveId(), indexMapping, addedIndexMapping, addedComponent, addedComponents);
+    }
+
+    public int clear() {
+        var handles = repository.getHandles();
+        EventLog events = repository.getEvents();
+        boolean indexed = repository.isIndexed(this);
+        if (handles.size() > 0 || events != null || indexed) {
+            for (var chunk = tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                for (int i = 0, size = chunk.size(); i < size; i++) {
+                    IntEntity entity = chunk.getItem(i);
+                    if (entity == null) {
+                        continue;
+                    }
+                    entity.releaseHandle();
+                    if (indexed) {
+                        repository.removeFromIndexes(entity);
+                    }
+                    if (events != null) {
+                        events.record(Events.Kind.DELETED, entity, this, this);
+                    }
+                }
+            }
+        }
+        int cleared = tenant.clear(false, true);
+        for (var stateTenant : stateTenants.values()) {
+            stateTenant.clear(true, true);
+        }
+        return cleared;
+    }
+
+    public int moveEntities(PreparedComposition.TargetComposition targetComposition, Composition.Filler filler, int offset) {
+        var targetTenant = targetComposition.target().tenant;
+        int[] addedIndexMapping = targetComposition.addedIndexMapping();
+        Object[] addedComponents = addedIndexMapping == null ? null : new Object[addedIndexMapping.length];
+        List<IntEntity> entitiesWithState = new ArrayList<>();
+        EventLog events = getEvents();
+        DataComposition target = targetComposition.target();
+        boolean indexed = isIndexed() || target.isIndexed();
+        int moved = 0;
+        for (var chunk = tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+            int size = chunk.size();
+            int from = 0;
+            while (from < size) {
+                int firstId = targetTenant.nextIds(size - from);
+                var targetChunk = targetTenant.getChunk(firstId);
+                int to = idSchema.fetchObjectId(firstId);
+                int length = Math.min(size - from, targetChunk.getCapacity() - to);
+                try {
+                    targetChunk.moveRange(chunk, from, to, length, targetComposition.indexMapping());
+                    for (int i = 0; addedComponents != null && i < length; i++) {
+                        filler.fill(offset + moved + i, addedComponents);
+                        targetChunk.add(idSchema.mergeId(firstId, to + i), addedIndexMapping, null, addedComponents);
+                    }
+                } finally {
+                    targetChunk.publish(length);
+                }
+                for (int i = 0; i < length; i++) {
+                    IntEntity entity = indexed ? targetChunk.fetchItem(to + i) : targetChunk.getItem(to + i);
+                    if (entity != null && indexed) {
+                        target.updateIndexes(entity);
+                    }
+                    if (entity != null && entity.hasStates()) {
+                        entitiesWithState.add(entity);
+                    }
+                    if (entity != null && events != null) {
+                        events.record(Events.Kind.MODIFIED, entity, this, targetComposition.target());
+                    }
+                }
+                from += length;
+                moved += length;
+            }
+        }
+        tenant.clear(false, false);
+        for (var stateTenant : stateTenants.values()) {
+            stateTenant.clear(true, false);
+        }
+        for (IntEntity entity : entitiesWithState) {
+            entity.moveStates(targetComposition.target(), false);
+        }
+        return moved;
+    }
+
+    public int compact(int budget) {
+        int moved = tenant.compact(budget, false);
+        for (var stateTenant : stateTenants.values()) {
+            moved += stateTenant.compact(budget - moved, true);
+        }
+        for (DataComposition partition : partitionArray) {
+            if (moved >= budget) {
+                break;
+            }
+            moved += partition.compact(budget - moved);
+        }
+        return moved;
     }
 
     public Class<?>[] getComponentTypes() {
@@ -155,19 +542,27 @@ public final class DataComposition {
         }
     }
 
-    public <T> Iterator<T> selectT(Class<T> type, ChunkedPool.PoolDataIterator<IntEntity> iterator) {
+    public <T> SelectIterator<T> selectT(Class<T> type, ChunkedPool.PoolDataIterator<IntEntity> iterator) {
         int idx = isMultiComponent() ? fetchComponentIndex(type) : 0;
         return new IteratorT<>(idx, iterator);
     }
 
-    public <T> Iterator<Results.With1<T>> select(Class<T> type, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith1<T> nextWith1) {
+    public SelectIterator<Object[]> selectAll(Class<?>[] types, ChunkedPool.PoolDataIterator<IntEntity> iterator) {
+        int[] idx = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            idx[i] = isMultiComponent() ? fetchComponentIndex(types[i]) : 0;
+        }
+        return new IteratorWithAll(idx, iterator);
+    }
+
+    public <T> SelectIterator<Results.With1<T>> select(Class<T> type, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith1<T> nextWith1) {
         int idx = isMultiComponent() ? fetchComponentIndex(type) : 0;
         return nextWith1 == null ?
                 new IteratorWith1<>(idx, iterator) :
                 new IteratorWith1Next<>(idx, iterator, nextWith1);
     }
 
-    public <T1, T2> Iterator<Results.With2<T1, T2>> select(Class<T1> type1, Class<T2> type2, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith2<T1, T2> nextWith2) {
+    public <T1, T2> SelectIterator<Results.With2<T1, T2>> select(Class<T1> type1, Class<T2> type2, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith2<T1, T2> nextWith2) {
         return nextWith2 == null ?
                 new IteratorWith2<>(
                         fetchComponentIndex(type1),
@@ -182,7 +577,7 @@ public final class DataComposition {
                 );
     }
 
-    public <T1, T2, T3> Iterator<Results.With3<T1, T2, T3>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith3<T1, T2, T3> nextWith3) {
+    public <T1, T2, T3> SelectIterator<Results.With3<T1, T2, T3>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith3<T1, T2, T3> nextWith3) {
         return nextWith3 == null ?
                 new IteratorWith3<>(
                         fetchComponentIndex(type1),
@@ -198,7 +593,7 @@ public final class DataComposition {
                 );
     }
 
-    public <T1, T2, T3, T4> Iterator<Results.With4<T1, T2, T3, T4>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith4<T1, T2, T3, T4> nextWith4) {
+    public <T1, T2, T3, T4> SelectIterator<Results.With4<T1, T2, T3, T4>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith4<T1, T2, T3, T4> nextWith4) {
         return nextWith4 == null ?
                 new IteratorWith4<>(
                         fetchComponentIndex(type1),
@@ -216,7 +611,7 @@ public final class DataComposition {
                 );
     }
 
-    public <T1, T2, T3, T4, T5> Iterator<Results.With5<T1, T2, T3, T4, T5>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith5<T1, T2, T3, T4, T5> nextWith5) {
+    public <T1, T2, T3, T4, T5> SelectIterator<Results.With5<T1, T2, T3, T4, T5>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith5<T1, T2, T3, T4, T5> nextWith5) {
         return nextWith5 == null ?
                 new IteratorWith5<>(
                         fetchComponentIndex(type1),
@@ -236,7 +631,7 @@ public final class DataComposition {
                 );
     }
 
-    public <T1, T2, T3, T4, T5, T6> Iterator<Results.With6<T1, T2, T3, T4, T5, T6>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith6<T1, T2, T3, T4, T5, T6> nextWith6) {
+    public <T1, T2, T3, T4, T5, T6> SelectIterator<Results.With6<T1, T2, T3, T4, T5, T6>> select(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6, ChunkedPool.PoolDataIterator<IntEntity> iterator, ResultSet.NextWith6<T1, T2, T3, T4, T5, T6> nextWith6) {
         return nextWith6 == null ?
                 new IteratorWith6<>(
                         fetchComponentIndex(type1),
@@ -259,7 +654,11 @@ public final class DataComposition {
                 );
     }
 
-    record IteratorT<T>(int idx, ChunkedPool.PoolDataIterator<IntEntity> iterator) implements Iterator<T> {
+    public interface SelectIterator<T> extends Iterator<T> {
+        ChunkedPool.PoolDataIterator<IntEntity> iterator();
+    }
+
+    record IteratorT<T>(int idx, ChunkedPool.PoolDataIterator<IntEntity> iterator) implements SelectIterator<T> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -274,8 +673,26 @@ public final class DataComposition {
         }
     }
 
+    record IteratorWithAll(int[] idx, ChunkedPool.PoolDataIterator<IntEntity> iterator)
+            implements SelectIterator<Object[]> {
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Object[] next() {
+            Object[] comps = new Object[idx.length];
+            for (int i = 0; i < idx.length; i++) {
+                comps[i] = iterator.data(idx[i]);
+            }
+            iterator.next();
+            return comps;
+        }
+    }
+
     record IteratorWith1<T>(int idx, ChunkedPool.PoolDataIterator<IntEntity> iterator)
-            implements Iterator<Results.With1<T>> {
+            implements SelectIterator<Results.With1<T>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -291,7 +708,7 @@ public final class DataComposition {
     record IteratorWith1Next<T1>(int idx1,
                                  ChunkedPool.PoolDataIterator<IntEntity> iterator,
                                  ChunkedPool.PoolIteratorNextWith1 nextWith1
-    ) implements Iterator<Results.With1<T1>> {
+    ) implements SelectIterator<Results.With1<T1>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -306,7 +723,7 @@ public final class DataComposition {
 
     record IteratorWith2<T1, T2>(int idx1, int idx2,
                                  ChunkedPool.PoolDataIterator<IntEntity> iterator
-    ) implements Iterator<Results.With2<T1, T2>> {
+    ) implements SelectIterator<Results.With2<T1, T2>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -326,7 +743,7 @@ public final class DataComposition {
     record IteratorWith2Next<T1, T2>(int idx1, int idx2,
                                      ChunkedPool.PoolDataIterator<IntEntity> iterator,
                                      ChunkedPool.PoolIteratorNextWith2 nextWith2
-    ) implements Iterator<Results.With2<T1, T2>> {
+    ) implements SelectIterator<Results.With2<T1, T2>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -341,7 +758,7 @@ public final class DataComposition {
 
     record IteratorWith3<T1, T2, T3>(int idx1, int idx2, int idx3,
                                      ChunkedPool.PoolDataIterator<IntEntity> iterator
-    ) implements Iterator<Results.With3<T1, T2, T3>> {
+    ) implements SelectIterator<Results.With3<T1, T2, T3>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -361,7 +778,7 @@ public final class DataComposition {
     record IteratorWith3Next<T1, T2, T3>(int idx1, int idx2, int idx3,
                                              ChunkedPool.PoolDataIterator<IntEntity> iterator,
                                              ChunkedPool.PoolIteratorNextWith3 nextWith3
-    ) implements Iterator<Results.With3<T1, T2, T3>> {
+    ) implements SelectIterator<Results.With3<T1, T2, T3>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -376,7 +793,7 @@ public final class DataComposition {
 
     record IteratorWith4<T1, T2, T3, T4>(int idx1, int idx2, int idx3, int idx4,
                                          ChunkedPool.PoolDataIterator<IntEntity> iterator
-    ) implements Iterator<Results.With4<T1, T2, T3, T4>> {
+    ) implements SelectIterator<Results.With4<T1, T2, T3, T4>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -397,7 +814,7 @@ public final class DataComposition {
     record IteratorWith4Next<T1, T2, T3, T4>(int idx1, int idx2, int idx3, int idx4,
                                              ChunkedPool.PoolDataIterator<IntEntity> iterator,
                                              ChunkedPool.PoolIteratorNextWith4 nextWith4
-    ) implements Iterator<Results.With4<T1, T2, T3, T4>> {
+    ) implements SelectIterator<Results.With4<T1, T2, T3, T4>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -413,7 +830,7 @@ public final class DataComposition {
 
     record IteratorWith5<T1, T2, T3, T4, T5>(int idx1, int idx2, int idx3, int idx4, int idx5,
                                              ChunkedPool.PoolDataIterator<IntEntity> iterator
-    ) implements Iterator<Results.With5<T1, T2, T3, T4, T5>> {
+    ) implements SelectIterator<Results.With5<T1, T2, T3, T4, T5>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -435,7 +852,7 @@ public final class DataComposition {
     record IteratorWith5Next<T1, T2, T3, T4, T5>(int idx1, int idx2, int idx3, int idx4, int idx5,
                                                  ChunkedPool.PoolDataIterator<IntEntity> iterator,
                                                  ChunkedPool.PoolIteratorNextWith5 nextWith5
-    ) implements Iterator<Results.With5<T1, T2, T3, T4, T5>> {
+    ) implements SelectIterator<Results.With5<T1, T2, T3, T4, T5>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -450,7 +867,7 @@ public final class DataComposition {
 
     record IteratorWith6<T1, T2, T3, T4, T5, T6>(int idx1, int idx2, int idx3, int idx4, int idx5, int idx6,
                                                  ChunkedPool.PoolDataIterator<IntEntity> iterator
-    ) implements Iterator<Results.With6<T1, T2, T3, T4, T5, T6>> {
+    ) implements SelectIterator<Results.With6<T1, T2, T3, T4, T5, T6>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -473,7 +890,7 @@ public final class DataComposition {
     record IteratorWith6Next<T1, T2, T3, T4, T5, T6>(int idx1, int idx2, int idx3, int idx4, int idx5, int idx6,
                                                      ChunkedPool.PoolDataIterator<IntEntity> iterator,
                                                      ChunkedPool.PoolIteratorNextWith6 nextWith6
-    ) implements Iterator<Results.With6<T1, T2, T3, T4, T5, T6>> {
+    ) implements SelectIterator<Results.With6<T1, T2, T3, T4, T5, T6>> {
         @Override
         public boolean hasNext() {
             return iterator.hasNext();
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+/**
+ * An EntityIndex is an index of the entities having a component type, registered to the CompositionRepository to be
+ * updated when entities are created, deleted, moved to another composition or marked as changed.
+ */
+public interface EntityIndex {
+
+    Class<?> getComponentType();
+
+    /**
+     * Updates the entity from the component it holds in the given composition, or removes it from the index if the
+     * composition does not have the component type.
+     */
+    void update(IntEntity entity, DataComposition composition);
+
+    void remove(IntEntity entity);
+
+    void clear();
+}
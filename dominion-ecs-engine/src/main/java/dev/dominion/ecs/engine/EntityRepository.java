@@ -17,6 +17,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 public final class EntityRepository implements Dominion {
     private static final System.Logger LOGGER = Logging.getLogger();
@@ -25,12 +27,12 @@ public final class EntityRepository implements Dominion {
     private final CompositionRepository compositions;
     private final int systemTimeoutSeconds;
 
-    public EntityRepository(String name, int classIndexBit, int chunkBit, int systemTimeoutSeconds,
+    public EntityRepository(String name, int classIndexBit, int chunkBit, int initialChunkBit, int systemTimeoutSeconds,
                             Logging.Context loggingContext) {
         this.name = name;
         this.systemTimeoutSeconds = systemTimeoutSeconds;
         this.loggingContext = loggingContext;
-        compositions = new CompositionRepository(classIndexBit, chunkBit, loggingContext);
+        compositions = new CompositionRepository(classIndexBit, chunkBit, initialChunkBit, loggingContext);
     }
 
     @Override
@@ -70,11 +72,45 @@ public final class EntityRepository implements Dominion {
         return createEntity(targetComponents);
     }
 
+    @Override
+    public Entity[] createEntities(int count, Composition.OfTypes composition, Composition.Filler filler) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid entity count [" + count + "]");
+        }
+        var prepared = (PreparedComposition.OfTypes) composition;
+        IntEntity[] entities = prepared.context.createEntities(count, prepared.getIndexMapping(), filler);
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Creating " + count + " entities with " + prepared.context)
+            );
+        }
+        return entities;
+    }
+
     @Override
     public boolean deleteEntity(Entity entity) {
         return ((IntEntity) entity).delete();
     }
 
+    @Override
+    public Entity getEntity(long handle) {
+        IntEntity entity = compositions.getHandles().get(handle);
+        return entity == null || entity.isDeleted() ? null : entity;
+    }
+
+    @Override
+    public int deleteEntities(Results<?> results) {
+        int deleted = ((ResultSet<?>) results).deleteEntities();
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Deleting " + deleted + " entities found by " + results)
+            );
+        }
+        return deleted;
+    }
+
     @Override
     public boolean modifyEntity(Composition.Modifier modifier) {
         var mod = (PreparedComposition.NewEntityComposition) modifier;
@@ -84,6 +120,54 @@ public final class EntityRepository implements Dominion {
         return mod.entity().modify(compositions, mod.targetComposition(), mod.addedComponent(), mod.addedComponents());
     }
 
+    @Override
+    public int modifyEntities(Results<?> results, Composition.Modifier modifier, Composition.Filler filler) {
+        if (!(modifier instanceof PreparedComposition.PreparedModifier preparedModifier)) {
+            throw new IllegalArgumentException("Invalid modifier [" + modifier + "]: use a prepared modifier without values");
+        }
+        if (preparedModifier.isAdding() && filler == null) {
+            throw new IllegalArgumentException("Invalid null filler: the modifier [" + modifier + "] adds components");
+        }
+        int modified = ((ResultSet<?>) results).modifyEntities(preparedModifier, filler);
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Modifying " + modified + " entities found by " + results)
+            );
+        }
+        return modified;
+    }
+
+    @Override
+    public int compact(int budget) {
+        return compositions.compact(budget);
+    }
+
+    @Override
+    public long currentTick() {
+        return compositions.getPool().getTick();
+    }
+
+    @Override
+    public long advanceTick() {
+        return compositions.advanceTick();
+    }
+
+    @Override
+    public Events events() {
+        return compositions.fetchEvents();
+    }
+
+    @Override
+    public <T, K> ComponentIndex<K> createIndex(Class<T> componentType, Function<? super T, ? extends K> keyExtractor) {
+        return compositions.addIndex(new HashIndex<>(componentType, keyExtractor));
+    }
+
+    @Override
+    public <T> SpatialIndex<T> createSpatialIndex(Class<T> positionType, ToDoubleFunction<? super T> x, ToDoubleFunction<? super T> y, double cellSize) {
+        return compositions.addIndex(new GridIndex<>(positionType, x, y, cellSize));
+    }
+
     @Override
     public Composition composition() {
         return compositions.getPreparedComposition();
@@ -130,6 +214,12 @@ public final class EntityRepository implements Dominion {
         return new ResultSet.With6<>(compositions, nodes, false, type1, type2, type3, type4, type5, type6);
     }
 
+    @Override
+    public Results<Object[]> findCompositionsWithAll(Class<?>... types) {
+        Map<IndexKey, Node> nodes = compositions.findWith(types);
+        return new ResultSet.WithAll(compositions, nodes, types);
+    }
+
     @Override
     public <T> Results<With1<T>> findEntitiesWith(Class<T> type) {
         Map<IndexKey, Node> nodes = compositions.findWith(type);
@@ -197,6 +287,8 @@ public final class EntityRepository implements Dominion {
             int classIndexBit = fetchClassIndexBit.orElse(Config.DEFAULT_CLASS_INDEX_BIT);
             Optional<Integer> fetchChunkBit = Config.fetchIntValue(name, Config.CHUNK_BIT);
             int chunkBit = fetchChunkBit.orElse(Config.DEFAULT_CHUNK_BIT);
+            Optional<Integer> fetchInitialChunkBit = Config.fetchIntValue(name, Config.INITIAL_CHUNK_BIT);
+            int initialChunkBit = fetchInitialChunkBit.orElse(Config.DEFAULT_INITIAL_CHUNK_BIT);
             Optional<Integer> fetchSystemTimeoutSeconds = Config.fetchIntValue(name, Config.SYSTEM_TIMEOUT_SECONDS);
             int systemTimeoutSeconds = fetchSystemTimeoutSeconds.orElse(Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS);
 
@@ -212,6 +304,9 @@ public final class EntityRepository implements Dominion {
                         , "  Chunk-Bit: " + chunkBit
                                 + (fetchChunkBit.isEmpty() ? " (set sys-property '"
                                 + Config.getPropertyName(name, Config.CHUNK_BIT) + "')" : "")
+                        , "  InitialChunk-Bit: " + initialChunkBit
+                                + (fetchInitialChunkBit.isEmpty() ? " (set sys-property '"
+                                + Config.getPropertyName(name, Config.INITIAL_CHUNK_BIT) + "')" : "")
                         , "  SystemTimeout-Seconds: " + systemTimeoutSeconds
                                 + (fetchSystemTimeoutSeconds.isEmpty() ? " (set sys-property '"
                                 + Config.getPropertyName(name, Config.SYSTEM_TIMEOUT_SECONDS) + "')" : "")
@@ -223,6 +318,7 @@ public final class EntityRepository implements Dominion {
             return new EntityRepository(name
                     , classIndexBit
                     , chunkBit
+                    , initialChunkBit
                     , systemTimeoutSeconds
                     , new Logging.Context(name, loggingLevelIndex)
             );
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import dev.dominion.ecs.api.Events;
+
+import java.util.Arrays;
+
+/**
+ * The EventLog class records the structural events of a tick into a pair of buffers used in turn: the recording
+ * buffer of the current tick and the completed buffer of the previous one, which is the only one to be drained.
+ * Events are stored as parallel arrays that grow to fit the busiest tick and are cleared and reused when the
+ * clock advances, so neither recording nor draining allocates in a steady state.
+ */
+public final class EventLog implements Events {
+    public static final int INITIAL_CAPACITY = 1 << 10;
+    private Buffer recording = new Buffer();
+    private volatile Buffer completed = new Buffer();
+
+    public synchronized void record(Kind kind, IntEntity entity, DataComposition source, DataComposition target) {
+        recording.add(kind, entity, source, target);
+    }
+
+    /**
+     * Makes the events recorded so far available to be drained and discards the previously completed ones.
+     * It must not run while the events are being drained.
+     */
+    public synchronized void advance() {
+        Buffer discarded = completed;
+        discarded.clear();
+        completed = recording;
+        recording = discarded;
+    }
+
+    @Override
+    public int drain(Class<?> componentType, Handler handler) {
+        Buffer buffer = completed;
+        int drained = 0;
+        for (int i = 0; i < buffer.size; i++) {
+            if (componentType == null
+                    || buffer.sources[i].hasComponentType(componentType)
+                    || (buffer.targets[i] != buffer.sources[i] && buffer.targets[i].hasComponentType(componentType))) {
+                handler.handle(buffer.kinds[i], buffer.entities[i]);
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    @Override
+    public int size() {
+        return completed.size;
+    }
+
+    @Override
+    public String toString() {
+        return "EventLog={"
+                + "recording=" + recording.size
+                + ", completed=" + completed.size
+                + '}';
+    }
+
+    private static final class Buffer {
+        private Kind[] kinds = new Kind[INITIAL_CAPACITY];
+        private IntEntity[] entities = new IntEntity[INITIAL_CAPACITY];
+        private DataComposition[] sources = new DataComposition[INITIAL_CAPACITY];
+        private DataComposition[] targets = new DataComposition[INITIAL_CAPACITY];
+        private int size;
+
+        private void add(Kind kind, IntEntity entity, DataComposition source, DataComposition target) {
+            if (size == kinds.length) {
+                int newCapacity = size << 1;
+                kinds = Arrays.copyOf(kinds, newCapacity);
+                entities = Arrays.copyOf(entities, newCapacity);
+                sources = Arrays.copyOf(sources, newCapacity);
+                targets = Arrays.copyOf(targets, newCapacity);
+            }
+            kinds[size] = kind;
+            entities[size] = entity;
+            sources[size] = source;
+            targets[size++] = target;
+        }
+
+        private void clear() {
+            Arrays.fill(entities, 0, size, null);
+            Arrays.fill(sources, 0, size, null);
+            Arrays.fill(targets, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import dev.dominion.ecs.api.Results;
+import dev.dominion.ecs.api.SpatialIndex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The GridIndex class arranges the entities with a position component in a uniform grid of square cells, stored
+ * sparsely in a map from the packed cell coordinates to the entries of the cell.
+ * A reverse map keeps the current entry of each indexed entity, so that an entity changing cell does not need to read
+ * its previous position, and an entity moving within its cell only replaces its entry.
+ * Range queries visit the cells overlapping the bounding box of the circle, while nearest queries visit rings of
+ * cells of growing distance until no unvisited cell can hold a nearer entity. Both fall back to visiting the occupied
+ * cells when they are fewer than the cells to be visited.
+ */
+public final class GridIndex<T> implements SpatialIndex<T>, EntityIndex {
+    private static final Comparator<Entry<?>> FARTHEST_FIRST = (a, b) -> Double.compare(b.distance, a.distance);
+    private final Class<T> positionType;
+    private final ToDoubleFunction<? super T> xExtractor;
+    private final ToDoubleFunction<? super T> yExtractor;
+    private final double cellSize;
+    private final Map<Long, Map<IntEntity, Entry<T>>> cells = new ConcurrentHashMap<>();
+    private final Map<IntEntity, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    public GridIndex(Class<T> positionType, ToDoubleFunction<? super T> xExtractor, ToDoubleFunction<? super T> yExtractor
+            , double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be a positive number: " + cellSize);
+        }
+        this.positionType = positionType;
+        this.xExtractor = xExtractor;
+        this.yExtractor = yExtractor;
+        this.cellSize = cellSize;
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private int cell(double coordinate) {
+        double cell = Math.floor(coordinate / cellSize);
+        return cell <= Integer.MIN_VALUE ? Integer.MIN_VALUE : cell >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) cell;
+    }
+
+    @Override
+    public Class<T> getComponentType() {
+        return positionType;
+    }
+
+    @Override
+    public void update(IntEntity entity, DataComposition composition) {
+        Object component = composition.getComponent(entity, positionType);
+        if (component == null) {
+            remove(entity);
+            return;
+        }
+        T position = positionType.cast(component);
+        double x = xExtractor.applyAsDouble(position), y = yExtractor.applyAsDouble(position);
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            remove(entity);
+            return;
+        }
+        Entry<T> entry = new Entry<>(entity, position, x, y, cellKey(cell(x), cell(y)));
+        entries.compute(entity, (e, prevEntry) -> {
+            if (prevEntry != null && prevEntry.cell != entry.cell) {
+                removeFromCell(prevEntry);
+            }
+            cells.compute(entry.cell, (k, cellEntries) -> {
+                if (cellEntries == null) {
+                    cellEntries = new ConcurrentHashMap<>();
+                }
+                cellEntries.put(e, entry);
+                return cellEntries;
+            });
+            return entry;
+        });
+    }
+
+    @Override
+    public void remove(IntEntity entity) {
+        entries.computeIfPresent(entity, (e, prevEntry) -> {
+            removeFromCell(prevEntry);
+            return null;
+        });
+    }
+
+    private void removeFromCell(Entry<T> entry) {
+        cells.computeIfPresent(entry.cell, (k, cellEntries) -> {
+            cellEntries.remove(entry.entity);
+            return cellEntries.isEmpty() ? null : cellEntries;
+        });
+    }
+
+    @Override
+    public List<Results.With1<T>> findInRange(double x, double y, double radius) {
+        List<Results.With1<T>> found = new ArrayList<>();
+        if (!(radius >= 0)) {
+            return found;
+        }
+        double radiusSquared = radius * radius;
+        int minX = cell(x - radius), maxX = cell(x + radius);
+        int minY = cell(y - radius), maxY = cell(y + radius);
+        if (((long) maxX - minX + 1) * ((long) maxY - minY + 1) > cells.size()) {
+            for (Map<IntEntity, Entry<T>> cellEntries : cells.values()) {
+                collectInRange(cellEntries, x, y, radiusSquared, found);
+            }
+            return found;
+        }
+        for (long cellX = minX; cellX <= maxX; cellX++) {
+            for (long cellY = minY; cellY <= maxY; cellY++) {
+                Map<IntEntity, Entry<T>> cellEntries = cells.get(cellKey((int) cellX, (int) cellY));
+                if (cellEntries != null) {
+                    collectInRange(cellEntries, x, y, radiusSquared, found);
+                }
+            }
+        }
+        return found;
+    }
+
+    private void collectInRange(Map<IntEntity, Entry<T>> cellEntries, double x, double y, double radiusSquared
+            , List<Results.With1<T>> found) {
+        for (Entry<T> entry : cellEntries.values()) {
+            if (entry.distanceSquared(x, y) <= radiusSquared) {
+                found.add(new Results.With1<>(entry.position, entry.entity));
+            }
+        }
+    }
+
+    @Override
+    public List<Results.With1<T>> findNearest(double x, double y, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of entities to find must not be negative: " + k);
+        }
+        PriorityQueue<Entry<T>> nearest = new PriorityQueue<>(Math.max(k, 1), FARTHEST_FIRST);
+        if (k > 0) {
+            int centerX = cell(x), centerY = cell(y);
+            for (long ring = 0; ; ring++) {
+                // the cells not visited yet are at least ring - 1 cells away from the cell of the point
+                if (nearest.size() == k && nearest.peek().distance <= (ring - 1) * cellSize) {
+                    break;
+                }
+                if (ring > 0 && ring * 8 > cells.size()) {
+                    nearest.clear();
+                    for (Map<IntEntity, Entry<T>> cellEntries : cells.values()) {
+                        collectNearest(cellEntries, x, y, k, nearest);
+                    }
+                    break;
+                }
+                for (long cellX = centerX - ring; cellX <= centerX + ring; cellX++) {
+                    boolean edge = cellX == centerX - ring || cellX == centerX + ring;
+                    for (long cellY = centerY - ring; cellY <= centerY + ring; cellY += edge || ring == 0 ? 1 : ring * 2) {
+                        if (cellX < Integer.MIN_VALUE || cellX > Integer.MAX_VALUE
+                                || cellY < Integer.MIN_VALUE || cellY > Integer.MAX_VALUE) {
+                            continue;
+                        }
+                        Map<IntEntity, Entry<T>> cellEntries = cells.get(cellKey((int) cellX, (int) cellY));
+                        if (cellEntries != null) {
+                            collectNearest(cellEntries, x, y, k, nearest);
+                        }
+                    }
+                }
+            }
+        }
+        Results.With1<T>[] sorted = newArray(nearest.size());
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            Entry<T> entry = nearest.poll();
+            sorted[i] = new Results.With1<>(entry.position, entry.entity);
+        }
+        return List.of(sorted);
+    }
+
+    private void collectNearest(Map<IntEntity, Entry<T>> cellEntries, double x, double y, int k
+            , PriorityQueue<Entry<T>> nearest) {
+        for (Entry<T> entry : cellEntries.values()) {
+            double distance = Math.sqrt(entry.distanceSquared(x, y));
+            if (nearest.size() < k) {
+                nearest.add(entry.at(distance));
+            } else if (distance < nearest.peek().distance) {
+                nearest.poll();
+                nearest.add(entry.at(distance));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Results.With1<T>[] newArray(int length) {
+        return (Results.With1<T>[]) new Results.With1<?>[length];
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        cells.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "GridIndex={"
+                + "positionType=" + positionType.getSimpleName()
+                + ", cellSize=" + cellSize
+                + ", cells=" + cells.size()
+                + ", entities=" + entries.size()
+                + '}';
+    }
+
+    private static final class Entry<T> {
+        private final IntEntity entity;
+        private final T position;
+        private final double x, y;
+        private final long cell;
+        private double distance;
+
+        private Entry(IntEntity entity, T position, double x, double y, long cell) {
+            this.entity = entity;
+            this.position = position;
+            this.x = x;
+            this.y = y;
+            this.cell = cell;
+        }
+
+        private double distanceSquared(double px, double py) {
+            double dx = x - px, dy = y - py;
+            return dx * dx + dy * dy;
+        }
+
+        private Entry<T> at(double distance) {
+            Entry<T> entry = new Entry<>(entity, position, x, y, cell);
+            entry.distance = distance;
+            return entry;
+        }
+    }
+}
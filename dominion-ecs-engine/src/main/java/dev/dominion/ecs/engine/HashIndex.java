@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import dev.dominion.ecs.api.ComponentIndex;
+import dev.dominion.ecs.api.Entity;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The HashIndex class maps the keys extracted from the components of a type to the entities holding them.
+ * A reverse map keeps the current key of each indexed entity, so that re-keying or removing an entity does not need
+ * to read its previous component: both maps are updated within the reverse map compute of the entity, which keeps
+ * concurrent updates of the same entity in order.
+ */
+public final class HashIndex<T, K> implements ComponentIndex<K>, EntityIndex {
+    private final Class<T> componentType;
+    private final Function<? super T, ? extends K> keyExtractor;
+    private final Map<K, Set<IntEntity>> entitiesByKey = new ConcurrentHashMap<>();
+    private final Map<IntEntity, K> keysByEntity = new ConcurrentHashMap<>();
+
+    public HashIndex(Class<T> componentType, Function<? super T, ? extends K> keyExtractor) {
+        this.componentType = componentType;
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public Class<T> getComponentType() {
+        return componentType;
+    }
+
+    @Override
+    public void update(IntEntity entity, DataComposition composition) {
+        Object component = composition.getComponent(entity, componentType);
+        K key = component == null ? null : keyExtractor.apply(componentType.cast(component));
+        if (key == null) {
+            remove(entity);
+            return;
+        }
+        keysByEntity.compute(entity, (e, prevKey) -> {
+            if (key.equals(prevKey)) {
+                return prevKey;
+            }
+            if (prevKey != null) {
+                removeFromKey(prevKey, e);
+            }
+            entitiesByKey.compute(key, (k, entities) -> {
+                if (entities == null) {
+                    entities = ConcurrentHashMap.newKeySet();
+                }
+                entities.add(e);
+                return entities;
+            });
+            return key;
+        });
+    }
+
+    @Override
+    public void remove(IntEntity entity) {
+        keysByEntity.computeIfPresent(entity, (e, prevKey) -> {
+            removeFromKey(prevKey, e);
+            return null;
+        });
+    }
+
+    private void removeFromKey(K key, IntEntity entity) {
+        entitiesByKey.computeIfPresent(key, (k, entities) -> {
+            entities.remove(entity);
+            return entities.isEmpty() ? null : entities;
+        });
+    }
+
+    @Override
+    public Entity findEntity(K key) {
+        Set<IntEntity> entities = entitiesByKey.get(Objects.requireNonNull(key));
+        if (entities != null) {
+            for (IntEntity entity : entities) {
+                return entity;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Set<Entity> findEntities(K key) {
+        Set<IntEntity> entities = entitiesByKey.get(Objects.requireNonNull(key));
+        return entities == null ? Set.of() : Collections.unmodifiableSet(entities);
+    }
+
+    @Override
+    public int size() {
+        return keysByEntity.size();
+    }
+
+    @Override
+    public void clear() {
+        keysByEntity.clear();
+        entitiesByKey.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "HashIndex={"
+                + "componentType=" + componentType.getSimpleName()
+                + ", keys=" + entitiesByKey.size()
+                + ", entities=" + keysByEntity.size()
+                + '}';
+    }
+}
@@ -6,21 +6,24 @@
 package dev.dominion.ecs.engine;
 
 import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.Events;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.collections.ChunkedPool.Item;
 
 import java.util.Arrays;
 
 public final class IntEntity implements Entity, Item {
+    private static final ChunkedPool.LinkedChunk<?>[] NO_STATES = new ChunkedPool.LinkedChunk<?>[0];
     ChunkedPool.LinkedChunk<IntEntity> chunk;
-    ChunkedPool.LinkedChunk<IntEntity> stateChunk;
+    // one slot for each enum type, the state chunk is null when the slot is free
+    private ChunkedPool.LinkedChunk<?>[] stateChunks = NO_STATES;
+    private int[] stateIds;
     private int id;
-    private int stateId;
     private Object[] shelf;
+    private volatile long handle;
 
     public IntEntity(int id) {
         this.id = id;
-        this.stateId = ChunkedPool.IdSchema.DETACHED_BIT;
     }
 
     @Override
@@ -33,13 +36,16 @@ public final class IntEntity implements Entity, Item {
         this.id = id;
     }
 
+    /**
+     * Returns the id of the first state of the entity.
+     */
     public int getStateId() {
-        return stateId;
-    }
-
-    @Override
-    public void setStateId(int stateId) {
-        this.stateId = stateId;
+        for (int i = 0; i < stateChunks.length; i++) {
+            if (stateChunks[i] != null) {
+                return stateIds[i];
+            }
+        }
+        return ChunkedPool.IdSchema.DETACHED_BIT;
     }
 
     public DataComposition getComposition() {
@@ -56,14 +62,124 @@ public final class IntEntity implements Entity, Item {
         this.chunk = (ChunkedPool.LinkedChunk<IntEntity>) chunk;
     }
 
+    /**
+     * Returns the chunk of the first state of the entity.
+     */
+    @SuppressWarnings("unchecked")
     public ChunkedPool.LinkedChunk<IntEntity> getStateChunk() {
-        return stateChunk;
+        for (ChunkedPool.LinkedChunk<?> stateChunk : stateChunks) {
+            if (stateChunk != null) {
+                return (ChunkedPool.LinkedChunk<IntEntity>) stateChunk;
+            }
+        }
+        return null;
     }
 
+    /**
+     * Returns the chunk of the state of the given enum type or null.
+     */
     @SuppressWarnings("unchecked")
+    public ChunkedPool.LinkedChunk<IntEntity> getStateChunk(Class<?> stateType) {
+        int slot = stateSlot(stateType);
+        return slot < 0 ? null : (ChunkedPool.LinkedChunk<IntEntity>) stateChunks[slot];
+    }
+
+    public boolean hasStates() {
+        return getStateChunk() != null;
+    }
+
+    /**
+     * Checks if the entity is registered in the given state tenant.
+     */
+    public boolean hasState(ChunkedPool.Tenant<IntEntity> stateTenant) {
+        for (ChunkedPool.LinkedChunk<?> stateChunk : stateChunks) {
+            if (stateChunk != null && stateChunk.getTenant() == stateTenant) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void setState(ChunkedPool.LinkedChunk<? extends Item> stateChunk, int stateId) {
+        int slot = stateSlot(stateType(stateChunk));
+        if (slot < 0) {
+            slot = freeStateSlot();
+        }
+        stateChunks[slot] = stateChunk;
+        stateIds[slot] = stateId;
+    }
+
     @Override
-    public void setStateChunk(ChunkedPool.LinkedChunk<? extends Item> chunk) {
-        this.stateChunk = (ChunkedPool.LinkedChunk<IntEntity>) chunk;
+    public void clearState(ChunkedPool.LinkedChunk<? extends Item> stateChunk) {
+        for (int i = 0; i < stateChunks.length; i++) {
+            if (stateChunks[i] != null && stateChunks[i].getTenant() == stateChunk.getTenant()) {
+                stateChunks[i] = null;
+                stateIds[i] = ChunkedPool.IdSchema.DETACHED_BIT;
+            }
+        }
+    }
+
+    private static Class<?> stateType(ChunkedPool.LinkedChunk<?> stateChunk) {
+        return ((Enum<?>) stateChunk.getTenant().getSubject()).getDeclaringClass();
+    }
+
+    private int stateSlot(Class<?> stateType) {
+        for (int i = 0; i < stateChunks.length; i++) {
+            if (stateChunks[i] != null && stateType(stateChunks[i]) == stateType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int freeStateSlot() {
+        for (int i = 0; i < stateChunks.length; i++) {
+            if (stateChunks[i] == null) {
+                return i;
+            }
+        }
+        int slot = stateChunks.length;
+        stateChunks = Arrays.copyOf(stateChunks, slot + 1);
+        stateIds = stateIds == null ? new int[1] : Arrays.copyOf(stateIds, slot + 1);
+        return slot;
+    }
+
+    private void freeState(int slot) {
+        ChunkedPool.LinkedChunk<?> stateChunk = stateChunks[slot];
+        stateChunks[slot] = null;
+        stateChunk.getTenant().freeStateId(stateIds[slot]);
+        stateIds[slot] = ChunkedPool.IdSchema.DETACHED_BIT;
+    }
+
+    private void freeStates() {
+        for (int i = 0; i < stateChunks.length; i++) {
+            if (stateChunks[i] != null) {
+                freeState(i);
+            }
+        }
+    }
+
+    /**
+     * Registers all the states of the entity in the state tenants of another composition.
+     *
+     * @param target the composition the entity has been moved to
+     * @param free   false if the previous state tenants have already been cleared
+     */
+    void moveStates(DataComposition target, boolean free) {
+        for (int i = 0; i < stateChunks.length; i++) {
+            ChunkedPool.LinkedChunk<?> stateChunk = stateChunks[i];
+            if (stateChunk == null) {
+                continue;
+            }
+            Enum<?> state = (Enum<?>) stateChunk.getTenant().getSubject();
+            if (free) {
+                freeState(i);
+            } else {
+                stateChunks[i] = null;
+            }
+            target.fetchStateTenants(state).registerState(this);
+        }
     }
 
     public Object[] getComponentArray() {
@@ -123,6 +239,17 @@ public final class IntEntity implements Entity, Item {
         }
     }
 
+    @Override
+    public Entity markChanged() {
+        synchronized (this) {
+            if (chunk != null) {
+                chunk.markChanged(chunk.getIdSchema().fetchObjectId(id));
+                getComposition().updateIndexes(this);
+            }
+            return this;
+        }
+    }
+
     @Override
     public boolean has(Class<?> componentType) {
         int dataLength;
@@ -154,20 +281,51 @@ public final class IntEntity implements Entity, Item {
             if (!isEnabled()) {
                 return this;
             }
-            if (state == null && stateChunk != null) {
-                stateChunk.getTenant().freeStateId(stateId);
-                stateChunk = null;
+            DataComposition composition = getComposition();
+            DataComposition base = composition.getPartitionBase();
+            if (state == null) {
+                freeStates();
+                if (composition != base) {
+                    composition.movePartition(this, base);
+                }
                 return this;
             }
-            DataComposition composition = getComposition();
-            if (stateChunk != null) {
-                var tenant = stateChunk.getTenant();
-                if (tenant == composition.getStateTenant(state)) {
+            if (DataComposition.isPartitioned(state)) {
+                DataComposition partition = base.fetchPartition(state);
+                if (partition != composition) {
+                    composition.movePartition(this, partition);
+                }
+                return this;
+            }
+            var tenant = composition.fetchStateTenants(state);
+            int slot = stateSlot(state.getDeclaringClass());
+            if (slot > -1) {
+                if (stateChunks[slot].getTenant() == tenant) {
                     return this;
                 }
-                tenant.freeStateId(stateId);
+                freeState(slot);
+            }
+            tenant.registerState(this);
+            return this;
+        }
+    }
+
+    @Override
+    public <S extends Enum<S>> Entity removeState(Class<S> stateType) {
+        synchronized (this) {
+            if (!isEnabled()) {
+                return this;
+            }
+            DataComposition composition = getComposition();
+            Enum<?> partitionState = composition.getPartitionState();
+            if (partitionState != null && partitionState.getDeclaringClass() == stateType) {
+                composition.movePartition(this, composition.getPartitionBase());
+                return this;
+            }
+            int slot = stateSlot(stateType);
+            if (slot > -1) {
+                freeState(slot);
             }
-            stateChunk = composition.fetchStateTenants(state).registerState(this);
             return this;
         }
     }
@@ -192,16 +350,43 @@ public final class IntEntity implements Entity, Item {
         return this;
     }
 
+    @Override
+    public long getHandle() {
+        long handle = this.handle;
+        if (handle != 0 || isDeleted()) {
+            return handle;
+        }
+        synchronized (this) {
+            if (this.handle == 0 && !isDeleted()) {
+                this.handle = getComposition().getRepository().getHandles().register(this);
+            }
+            return this.handle;
+        }
+    }
+
+    void releaseHandle() {
+        long handle = this.handle;
+        if (handle != 0) {
+            getComposition().getRepository().getHandles().release(handle);
+        }
+    }
+
     boolean delete() {
         synchronized (this) {
+            if (isDeleted()) {
+                return false;
+            }
+            releaseHandle();
+            DataComposition composition = getComposition();
             chunk.getTenant().freeId(id);
             flagDetachedId();
             chunk = null;
-            if (stateChunk != null) {
-                stateChunk.getTenant().freeStateId(stateId);
-                stateChunk = null;
-            }
+            freeStates();
             shelf = null;
+            if (composition != null) {
+                composition.removeFromIndexes(this);
+                composition.recordEvent(Events.Kind.DELETED, this);
+            }
             return true;
         }
     }
@@ -220,7 +405,7 @@ public final class IntEntity implements Entity, Item {
         ChunkedPool.IdSchema idSchema = getComposition().getIdSchema();
         return "Entity={" +
                 "id=" + idSchema.idToString(id) + "-> " + Arrays.toString(getComponentArray()) + ", " +
-                "stateId=" + idSchema.idToString(stateId) + ", " +
+                "stateId=" + idSchema.idToString(getStateId()) + ", " +
                 "enabled=" + isEnabled() +
                 "}";
     }
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import dev.dominion.ecs.api.Results;
+import dev.dominion.ecs.engine.collections.ChunkedPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * A Kernel is the iteration loop of a query shape over the chunks of one composition.
+ * Each kernel is an instance of its own hidden class, defined from the template of its arity with the column indexes
+ * of the required types as class data: the indexes land in static final fields that the JIT folds as constants, and
+ * every (query shape, composition) pair gets its own copy of the loop, so that the action call site inside it only
+ * sees the actions of that query. Kernels are cached by the DataComposition for each query shape.
+ */
+public abstract class Kernel {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final byte[][] TEMPLATES = {
+            template(Template1.class), template(Template2.class), template(Template3.class),
+            template(Template4.class), template(Template5.class), template(Template6.class)
+    };
+
+    static Kernel of(int[] columns) {
+        if (columns.length < 1 || columns.length > TEMPLATES.length) {
+            throw new IllegalArgumentException("Unsupported kernel arity " + columns.length);
+        }
+        try {
+            MethodHandles.Lookup lookup = LOOKUP.defineHiddenClassWithClassData(TEMPLATES[columns.length - 1]
+                    , columns.clone(), true);
+            return (Kernel) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to define the kernel of " + columns.length + " columns", e);
+        }
+    }
+
+    private static byte[] template(Class<?> type) {
+        String name = type.getName();
+        try (InputStream stream = type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            if (stream == null) {
+                throw new IllegalStateException("Missing kernel template " + name);
+            }
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the kernel template " + name, e);
+        }
+    }
+
+    /**
+     * Reads the column indexes handed over to a hidden kernel class, from its static initializer.
+     */
+    static int[] columns(MethodHandles.Lookup lookup) {
+        try {
+            return MethodHandles.classData(lookup, ConstantDescs.DEFAULT_NAME, int[].class);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public abstract static class Of1 extends Kernel {
+
+        public abstract <T1> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer1<T1> action);
+
+        public abstract <T1> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer1<T1> action);
+    }
+
+    public abstract static class Of2 extends Kernel {
+
+        public abstract <T1, T2> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer2<T1, T2> action);
+
+        public abstract <T1, T2> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer2<T1, T2> action);
+    }
+
+    public abstract static class Of3 extends Kernel {
+
+        public abstract <T1, T2, T3> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer3<T1, T2, T3> action);
+
+        public abstract <T1, T2, T3> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer3<T1, T2, T3> action);
+    }
+
+    public abstract static class Of4 extends Kernel {
+
+        public abstract <T1, T2, T3, T4> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer4<T1, T2, T3, T4> action);
+
+        public abstract <T1, T2, T3, T4> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer4<T1, T2, T3, T4> action);
+    }
+
+    public abstract static class Of5 extends Kernel {
+
+        public abstract <T1, T2, T3, T4, T5> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer5<T1, T2, T3, T4, T5> action);
+
+        public abstract <T1, T2, T3, T4, T5> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer5<T1, T2, T3, T4, T5> action);
+    }
+
+    public abstract static class Of6 extends Kernel {
+
+        public abstract <T1, T2, T3, T4, T5, T6> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer6<T1, T2, T3, T4, T5, T6> action);
+
+        public abstract <T1, T2, T3, T4, T5, T6> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer6<T1, T2, T3, T4, T5, T6> action);
+    }
+
+    // templates of the hidden kernel classes: they are never initialized, their bytes are defined again for each kernel
+
+    static final class Template1 extends Of1 {
+        private static final int COLUMN1;
+
+        static {
+            int[] columns = columns(MethodHandles.lookup());
+            COLUMN1 = columns[0];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer1<T1> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept((T1) comps1[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer1<T1> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept(chunk.fetchItem(i), (T1) comps1[i]);
+            }
+        }
+    }
+
+    static final class Template2 extends Of2 {
+        private static final int COLUMN1;
+        private static final int COLUMN2;
+
+        static {
+            int[] columns = columns(MethodHandles.lookup());
+            COLUMN1 = columns[0];
+            COLUMN2 = columns[1];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer2<T1, T2> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept((T1) comps1[i], (T2) comps2[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer2<T1, T2> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept(chunk.fetchItem(i), (T1) comps1[i], (T2) comps2[i]);
+            }
+        }
+    }
+
+    static final class Template3 extends Of3 {
+        private static final int COLUMN1;
+        private static final int COLUMN2;
+        private static final int COLUMN3;
+
+        static {
+            int[] columns = columns(MethodHandles.lookup());
+            COLUMN1 = columns[0];
+            COLUMN2 = columns[1];
+            COLUMN3 = columns[2];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer3<T1, T2, T3> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept((T1) comps1[i], (T2) comps2[i], (T3) comps3[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer3<T1, T2, T3> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept(chunk.fetchItem(i), (T1) comps1[i], (T2) comps2[i], (T3) comps3[i]);
+            }
+        }
+    }
+
+    static final class Template4 extends Of4 {
+        private static final int COLUMN1;
+        private static final int COLUMN2;
+        private static final int COLUMN3;
+        private static final int COLUMN4;
+
+        static {
+            int[] columns = columns(MethodHandles.lookup());
+            COLUMN1 = columns[0];
+            COLUMN2 = columns[1];
+            COLUMN3 = columns[2];
+            COLUMN4 = columns[3];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3, T4> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer4<T1, T2, T3, T4> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            Object[] comps4 = chunk.getColumn(COLUMN4);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept((T1) comps1[i], (T2) comps2[i], (T3) comps3[i], (T4) comps4[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3, T4> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer4<T1, T2, T3, T4> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            Object[] comps4 = chunk.getColumn(COLUMN4);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept(chunk.fetchItem(i), (T1) comps1[i], (T2) comps2[i], (T3) comps3[i], (T4) comps4[i]);
+            }
+        }
+    }
+
+    static final class Template5 extends Of5 {
+        private static final int COLUMN1;
+        private static final int COLUMN2;
+        private static final int COLUMN3;
+        private static final int COLUMN4;
+        private static final int COLUMN5;
+
+        static {
+            int[] columns = columns(MethodHandles.lookup());
+            COLUMN1 = columns[0];
+            COLUMN2 = columns[1];
+            COLUMN3 = columns[2];
+            COLUMN4 = columns[3];
+            COLUMN5 = columns[4];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3, T4, T5> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer5<T1, T2, T3, T4, T5> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            Object[] comps4 = chunk.getColumn(COLUMN4);
+            Object[] comps5 = chunk.getColumn(COLUMN5);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept((T1) comps1[i], (T2) comps2[i], (T3) comps3[i], (T4) comps4[i], (T5) comps5[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3, T4, T5> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer5<T1, T2, T3, T4, T5> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            Object[] comps4 = chunk.getColumn(COLUMN4);
+            Object[] comps5 = chunk.getColumn(COLUMN5);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept(chunk.fetchItem(i), (T1) comps1[i], (T2) comps2[i], (T3) comps3[i], (T4) comps4[i], (T5) comps5[i]);
+            }
+        }
+    }
+
+    static final class Template6 extends Of6 {
+        private static final int COLUMN1;
+        private static final int COLUMN2;
+        private static final int COLUMN3;
+        private static final int COLUMN4;
+        private static final int COLUMN5;
+        private static final int COLUMN6;
+
+        static {
+            int[] columns = columns(MethodHandles.lookup());
+            COLUMN1 = columns[0];
+            COLUMN2 = columns[1];
+            COLUMN3 = columns[2];
+            COLUMN4 = columns[3];
+            COLUMN5 = columns[4];
+            COLUMN6 = columns[5];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3, T4, T5, T6> void forEach(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.Consumer6<T1, T2, T3, T4, T5, T6> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            Object[] comps4 = chunk.getColumn(COLUMN4);
+            Object[] comps5 = chunk.getColumn(COLUMN5);
+            Object[] comps6 = chunk.getColumn(COLUMN6);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept((T1) comps1[i], (T2) comps2[i], (T3) comps3[i], (T4) comps4[i], (T5) comps5[i], (T6) comps6[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T1, T2, T3, T4, T5, T6> void forEachWithEntity(ChunkedPool.LinkedChunk<IntEntity> chunk, Results.EntityConsumer6<T1, T2, T3, T4, T5, T6> action) {
+            Object[] comps1 = chunk.getColumn(COLUMN1);
+            Object[] comps2 = chunk.getColumn(COLUMN2);
+            Object[] comps3 = chunk.getColumn(COLUMN3);
+            Object[] comps4 = chunk.getColumn(COLUMN4);
+            Object[] comps5 = chunk.getColumn(COLUMN5);
+            Object[] comps6 = chunk.getColumn(COLUMN6);
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                action.accept(chunk.fetchItem(i), (T1) comps1[i], (T2) comps2[i], (T3) comps3[i], (T4) comps4[i], (T5) comps5[i], (T6) comps6[i]);
+            }
+        }
+    }
+}
@@ -146,6 +146,10 @@ public class PreparedComposition implements Composition {
             return components;
         }
 
+        public int[] getIndexMapping() {
+            return indexMapping.length == 0 ? new int[]{0} : indexMapping;
+        }
+
         public Object getContext() {
             return context;
         }
@@ -200,7 +204,11 @@ public class PreparedComposition implements Composition {
                     null;
         }
 
-        private TargetComposition fetchTargetComposition(DataComposition composition) {
+        boolean isAdding() {
+            return addedComponentTypes != null;
+        }
+
+        TargetComposition fetchTargetComposition(DataComposition composition) {
             TargetComposition targetComposition = cache.get(composition);
             return targetComposition == null ?
                     cache.computeIfAbsent(composition, this::getTargetComposition) : targetComposition;
@@ -216,6 +224,9 @@ public class PreparedComposition implements Composition {
             }
             Class<?>[] newComponentTypes = typeList.toArray(new Class<?>[0]);
             DataComposition newComposition = compositions.getOrCreateByType(newComponentTypes);
+            if (prevComposition.getPartitionState() != null) {
+                newComposition = newComposition.fetchPartition(prevComposition.getPartitionState());
+            }
             int[] indexMapping = new int[prevComponentTypes.length];
             populateIndexMapping(prevComponentTypes, indexMapping, newComposition);
             int[] addedIndexMapping = null;
@@ -5,30 +5,54 @@
 
 package dev.dominion.ecs.engine;
 
+import dev.dominion.ecs.api.Composition;
 import dev.dominion.ecs.api.Entity;
 import dev.dominion.ecs.api.Results;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
+import dev.dominion.ecs.engine.collections.PrimitiveColumns;
+import dev.dominion.ecs.engine.collections.PrimitiveLayout;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public abstract class ResultSet<T> implements Results<T> {
     private static final System.Logger LOGGER = Logging.getLogger();
+    private static final DataComposition[] NO_COMPOSITIONS = new DataComposition[0];
+    private static final Enum<?>[] NO_STATES = new Enum<?>[0];
+    private static final IndexKey[] NO_STATE_KEYS = new IndexKey[0];
     protected final boolean withEntity;
     private final CompositionRepository compositionRepository;
     private final Map<IndexKey, CompositionRepository.Node> nodeMap;
-    protected IndexKey stateKey;
+    private final Class<?>[] componentTypes;
+    private final List<Class<?>> withAlsoTypes = new ArrayList<>();
+    private final List<Class<?>> withoutTypes = new ArrayList<>();
+    // one required state for each enum type, the partitioned one selects the partition to scan
+    private Enum<?>[] states = NO_STATES;
+    private IndexKey[] stateKeys = NO_STATE_KEYS;
+    private IndexKey partitionKey;
+    private boolean disjointPartitions;
+    private long changedSince;
+    private volatile DataComposition[] compiled;
+    private volatile int[][] compiledColumns;
 
-    public ResultSet(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap, boolean withEntity) {
+    public ResultSet(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
+                     boolean withEntity, Class<?>... componentTypes) {
         this.compositionRepository = compositionRepository;
         this.nodeMap = nodeMap;
         this.withEntity = withEntity;
+        this.componentTypes = componentTypes;
         if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
                     System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
@@ -41,19 +65,186 @@ public abstract class ResultSet<T> implements Results<T> {
     public String toString() {
         return "ResultSet{" +
                 "nodes=" + (nodeMap == null ? null : nodeMap.values()) +
+                ", compiled=" + (compiled != null) +
                 ", withEntity=" + withEntity +
-                ", stateKey=" + stateKey +
+                ", states=" + Arrays.toString(states) +
+                ", partitionKey=" + partitionKey +
+                ", changedSince=" + changedSince +
                 '}';
     }
 
-    abstract Iterator<T> compositionIterator(DataComposition composition);
+    abstract DataComposition.SelectIterator<T> compositionIterator(DataComposition composition);
+
+    private DataComposition.SelectIterator<T> selectIterator(DataComposition composition) {
+        var iterator = compositionIterator(composition);
+        if (changedSince > 0) {
+            iterator.iterator().changedSince(changedSince);
+        }
+        return iterator;
+    }
+
+    /**
+     * Returns the compositions to be visited: the array kept up to date by a compiled ResultSet, otherwise a snapshot of
+     * the compositions of the found nodes, with their partitions or only the partition of the required state.
+     */
+    private DataComposition[] compositions() {
+        DataComposition[] compositions = compiled;
+        if (compositions != null) {
+            return compositions;
+        }
+        if (nodeMap == null || nodeMap.isEmpty() || disjointPartitions) {
+            return NO_COMPOSITIONS;
+        }
+        List<DataComposition> compositionList = new ArrayList<>(nodeMap.size());
+        for (CompositionRepository.Node node : nodeMap.values()) {
+            DataComposition composition = node.getComposition();
+            if (composition == null) {
+                continue;
+            }
+            if (partitionKey != null) {
+                DataComposition partition = composition.getPartition(partitionKey);
+                if (partition != null) {
+                    compositionList.add(partition);
+                }
+                continue;
+            }
+            compositionList.add(composition);
+            Collections.addAll(compositionList, composition.getPartitions());
+        }
+        return compositionList.toArray(NO_COMPOSITIONS);
+    }
+
+    @Override
+    public Results<T> compile() {
+        synchronized (this) {
+            if (compiled == null) {
+                compositionRepository.getNodeCache().register(this);
+                DataComposition[] compositions = NO_COMPOSITIONS;
+                for (DataComposition composition : compositions()) {
+                    if (matches(composition)) {
+                        compositions = append(compositions, composition);
+                    }
+                }
+                setCompiled(compositions);
+            }
+        }
+        if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
+                            , "Compiling " + this)
+            );
+        }
+        return this;
+    }
+
+    @Override
+    public Results<T> release() {
+        synchronized (this) {
+            if (compiled != null) {
+                compositionRepository.getNodeCache().unregister(this);
+                compiled = null;
+                compiledColumns = null;
+            }
+        }
+        if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
+                            , "Releasing " + this)
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Appends a new composition to a compiled ResultSet if it matches the required component types.
+     */
+    synchronized void offer(DataComposition composition) {
+        DataComposition[] compositions = compiled;
+        if (compositions == null || !matches(composition)) {
+            return;
+        }
+        for (DataComposition existing : compositions) {
+            if (existing == composition) {
+                return;
+            }
+        }
+        setCompiled(append(compositions, composition));
+    }
+
+    private void setCompiled(DataComposition[] compositions) {
+        int[][] columns = new int[compositions.length][];
+        for (int i = 0; i < compositions.length; i++) {
+            columns[i] = columnsOf(compositions[i]);
+        }
+        compiledColumns = columns;
+        compiled = compositions;
+    }
+
+    private static DataComposition[] append(DataComposition[] compositions, DataComposition composition) {
+        DataComposition[] newCompositions = Arrays.copyOf(compositions, compositions.length + 1);
+        newCompositions[compositions.length] = composition;
+        return newCompositions;
+    }
+
+    private boolean matches(DataComposition composition) {
+        if (disjointPartitions || partitionKey != null && !partitionKey.equals(composition.getPartitionKey())) {
+            return false;
+        }
+        for (Class<?> componentType : componentTypes) {
+            if (!composition.hasComponentType(componentType)) {
+                return false;
+            }
+        }
+        for (Class<?> componentType : withAlsoTypes) {
+            if (!composition.hasComponentType(componentType)) {
+                return false;
+            }
+        }
+        for (Class<?> componentType : withoutTypes) {
+            if (composition.hasComponentType(componentType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Filters again all the compositions created so far, so that a compiled ResultSet follows any change of its
+     * filters, including a required partition replaced by another one.
+     */
+    private synchronized void refilterCompiled() {
+        if (compiled == null) {
+            return;
+        }
+        DataComposition[] filtered = NO_COMPOSITIONS;
+        for (DataComposition composition : compositionRepository.getCompositions()) {
+            if (matches(composition)) {
+                filtered = append(filtered, composition);
+            }
+            for (DataComposition partition : composition.getPartitions()) {
+                if (matches(partition)) {
+                    filtered = append(filtered, partition);
+                }
+            }
+        }
+        setCompiled(filtered);
+    }
+
+    private int[] columnsOf(DataComposition composition) {
+        int[] columns = new int[componentTypes.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = composition.isMultiComponent() ? composition.fetchComponentIndex(componentTypes[i]) : 0;
+        }
+        return columns;
+    }
 
     @Override
     public Iterator<T> iterator() {
-        return nodeMap != null && nodeMap.size() > 0 ?
-                (nodeMap.size() > 1 ?
-                        new IteratorWrapper<>(this, nodeMap.values().iterator()) :
-                        compositionIterator(nodeMap.values().iterator().next().getComposition()))
+        DataComposition[] compositions = compositions();
+        return compositions.length > 0 ?
+                (compositions.length > 1 ?
+                        new IteratorWrapper<>(this, compositions) :
+                        selectIterator(compositions[0]))
                 :
                 new Iterator<>() {
                     @Override
@@ -70,7 +261,18 @@ public abstract class ResultSet<T> implements Results<T> {
 
     @Override
     public <S extends Enum<S>> Results<T> withState(S state) {
-        stateKey = compositionRepository.getClassIndex().getIndexKeyByEnum(state);
+        Enum<?>[] newStates = null;
+        for (int i = 0; i < states.length; i++) {
+            if (states[i].getDeclaringClass() == state.getDeclaringClass()) {
+                newStates = states.clone();
+                newStates[i] = state;
+            }
+        }
+        if (newStates == null) {
+            newStates = Arrays.copyOf(states, states.length + 1);
+            newStates[states.length] = state;
+        }
+        setStates(newStates);
         if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
                     System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
@@ -80,33 +282,209 @@ public abstract class ResultSet<T> implements Results<T> {
         return this;
     }
 
+    private void setStates(Enum<?>[] newStates) {
+        IndexKey newPartitionKey = null;
+        boolean disjoint = false;
+        List<IndexKey> keys = new ArrayList<>(newStates.length);
+        for (Enum<?> state : newStates) {
+            IndexKey key = compositionRepository.getClassIndex().getIndexKeyByEnum(state);
+            if (!DataComposition.isPartitioned(state)) {
+                keys.add(key);
+            } else if (newPartitionKey == null) {
+                newPartitionKey = key;
+            } else {
+                disjoint = true; // an entity is stored in one partition at a time
+            }
+        }
+        states = newStates;
+        stateKeys = keys.toArray(NO_STATE_KEYS);
+        if (disjoint != disjointPartitions || !Objects.equals(newPartitionKey, partitionKey)) {
+            partitionKey = newPartitionKey;
+            disjointPartitions = disjoint;
+            refilterCompiled();
+        }
+    }
+
+    /**
+     * Returns the state tenant of the composition with fewer entities among the required states, or null if any of the
+     * required states has no entity in the composition.
+     */
+    private ChunkedPool.Tenant<IntEntity> smallestStateTenant(DataComposition composition) {
+        ChunkedPool.Tenant<IntEntity> smallest = null;
+        int smallestSize = Integer.MAX_VALUE;
+        for (IndexKey key : stateKeys) {
+            var tenant = composition.getStateTenant(key);
+            if (tenant == null) {
+                return null;
+            }
+            int size = stateKeys.length == 1 ? 0 : tenant.size();
+            if (size < smallestSize) {
+                smallest = tenant;
+                smallestSize = size;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Returns the test of the entities of the smallest state tenant that also have all the other required states, or
+     * null if only one state is required.
+     */
+    private Predicate<IntEntity> stateFilter(DataComposition composition, ChunkedPool.Tenant<IntEntity> smallest) {
+        if (stateKeys.length == 1) {
+            return null;
+        }
+        List<ChunkedPool.Tenant<IntEntity>> others = new ArrayList<>(stateKeys.length - 1);
+        for (IndexKey key : stateKeys) {
+            var tenant = composition.getStateTenant(key);
+            if (tenant != smallest) {
+                others.add(tenant);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        ChunkedPool.Tenant<IntEntity>[] tenants = others.toArray(new ChunkedPool.Tenant[0]);
+        return entity -> {
+            for (var tenant : tenants) {
+                if (!entity.hasState(tenant)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    @Override
+    public Results<T> changedSince(long tick) {
+        changedSince = tick;
+        if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
+                            , "Setting changedSince " + tick + " to " + this)
+            );
+        }
+        return this;
+    }
+
     @Override
     public Stream<T> stream() {
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), false);
+        return StreamSupport.stream(new ChunkSpliterator<>(this), false);
+    }
+
+    @Override
+    public void forEachChunk(Consumer<? super Chunk> action) {
+        if (stateKeys.length > 0) {
+            throw new UnsupportedOperationException("Unsupported .withState(S state).forEachChunk(action) call : use .withState(S state).iterator() instead");
+        }
+        int[][] columns = compiledColumns;
+        DataComposition[] compositions = compiled;
+        if (compositions == null || columns.length != compositions.length) {
+            compositions = compositions();
+            columns = null;
+        }
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            ChunkView view = new ChunkView(columns == null ? columnsOf(composition) : columns[c], changedSince);
+            for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                if (!chunk.isEmpty() && chunk.getVersion() >= changedSince) {
+                    view.chunk = chunk;
+                    action.accept(view);
+                }
+            }
+        }
+    }
+
+    private List<IntEntity> fetchEntitiesWithState(DataComposition composition) {
+        List<IntEntity> entities = new ArrayList<>();
+        var tenant = smallestStateTenant(composition);
+        var filter = tenant == null ? null : stateFilter(composition, tenant);
+        for (var chunk = tenant == null ? null : tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                IntEntity entity = chunk.getItem(i);
+                if (entity != null && (filter == null || filter.test(entity))) {
+                    entities.add(entity);
+                }
+            }
+        }
+        return entities;
+    }
+
+    int deleteEntities() {
+        int deleted = 0;
+        for (DataComposition composition : compositions()) {
+            if (stateKeys.length == 0) {
+                deleted += composition.clear();
+                continue;
+            }
+            List<IntEntity> entities = fetchEntitiesWithState(composition);
+            for (IntEntity entity : entities) {
+                if (entity.delete()) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    int modifyEntities(PreparedComposition.PreparedModifier modifier, Composition.Filler filler) {
+        int modified = 0;
+        for (DataComposition composition : compositions()) {
+            var targetComposition = modifier.fetchTargetComposition(composition);
+            if (targetComposition.target().equals(composition)) {
+                continue;
+            }
+            if (stateKeys.length == 0) {
+                modified += composition.moveEntities(targetComposition, filler, modified);
+                continue;
+            }
+            List<IntEntity> entities = fetchEntitiesWithState(composition);
+            int[] addedIndexMapping = targetComposition.addedIndexMapping();
+            for (IntEntity entity : entities) {
+                Object[] addedComponents = null;
+                if (addedIndexMapping != null) {
+                    addedComponents = new Object[addedIndexMapping.length];
+                    filler.fill(modified, addedComponents);
+                }
+                if (entity.modify(compositionRepository, targetComposition, null, addedComponents)) {
+                    modified++;
+                }
+            }
+        }
+        return modified;
     }
 
     @Override
     public Results<T> without(Class<?>... componentTypes) {
-        compositionRepository.mapWithout(nodeMap, componentTypes);
+        if (nodeMap != null) {
+            compositionRepository.mapWithout(nodeMap, componentTypes);
+        }
+        withoutTypes.addAll(List.of(componentTypes));
+        refilterCompiled();
         return this;
     }
 
     @Override
     public Results<T> withAlso(Class<?>... componentTypes) {
-        compositionRepository.mapWithAlso(nodeMap, componentTypes);
+        if (nodeMap != null) {
+            compositionRepository.mapWithAlso(nodeMap, componentTypes);
+        }
+        withAlsoTypes.addAll(List.of(componentTypes));
+        refilterCompiled();
         return this;
     }
 
     protected ChunkedPool.PoolDataIterator<IntEntity> getPoolDataIterator(DataComposition composition, boolean multiData) {
-        boolean withState = stateKey != null;
+        boolean withState = stateKeys.length > 0;
         ChunkedPool.PoolDataIterator<IntEntity> iterator;
         if (withState) {
-            var tenant = composition.getStateTenant(stateKey);
+            var tenant = smallestStateTenant(composition);
             iterator = tenant == null ?
                     new ChunkedPool.PoolDataEmptyIterator<>() :
                     withEntity ?
                             tenant.iteratorWithState(multiData) :
                             tenant.noItemIteratorWithState(multiData);
+            if (tenant != null && stateKeys.length > 1) {
+                iterator.filter(stateFilter(composition, tenant));
+            }
         } else {
             var tenant = composition.getTenant();
             iterator = withEntity ?
@@ -116,16 +494,385 @@ public abstract class ResultSet<T> implements Results<T> {
         return iterator;
     }
 
+    private void checkAction(int arity, boolean entity) {
+        if (arity > componentTypes.length) {
+            throw new IllegalArgumentException("The action takes " + arity + " components but " + componentTypes.length + " component types are required");
+        }
+        if (entity && !withEntity) {
+            throw new UnsupportedOperationException("Unsupported .findCompositionsWith(..).forEachWithEntity(action) call : use .findEntitiesWith(..) instead");
+        }
+    }
+
+    /**
+     * Tells whether the forEach actions can hand the chunks of the composition over to its kernel: the other
+     * compositions are walked by a single cursor re-pointed at each of them.
+     */
+    private boolean isDirect(DataComposition composition) {
+        return stateKeys.length == 0 && changedSince == 0 && !composition.hasPrimitiveComponents();
+    }
+
+    @Override
+    public <T1> void forEach(Consumer1<T1> action) {
+        checkAction(1, false);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of1 kernel = (Kernel.Of1) composition.fetchKernel(componentTypes, 1);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEach(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.get(0));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2> void forEach(Consumer2<T1, T2> action) {
+        checkAction(2, false);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of2 kernel = (Kernel.Of2) composition.fetchKernel(componentTypes, 2);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEach(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.get(0), cursor.get(1));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3> void forEach(Consumer3<T1, T2, T3> action) {
+        checkAction(3, false);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of3 kernel = (Kernel.Of3) composition.fetchKernel(componentTypes, 3);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEach(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.get(0), cursor.get(1), cursor.get(2));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3, T4> void forEach(Consumer4<T1, T2, T3, T4> action) {
+        checkAction(4, false);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of4 kernel = (Kernel.Of4) composition.fetchKernel(componentTypes, 4);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEach(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.get(0), cursor.get(1), cursor.get(2), cursor.get(3));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3, T4, T5> void forEach(Consumer5<T1, T2, T3, T4, T5> action) {
+        checkAction(5, false);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of5 kernel = (Kernel.Of5) composition.fetchKernel(componentTypes, 5);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEach(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.get(0), cursor.get(1), cursor.get(2), cursor.get(3), cursor.get(4));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3, T4, T5, T6> void forEach(Consumer6<T1, T2, T3, T4, T5, T6> action) {
+        checkAction(6, false);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of6 kernel = (Kernel.Of6) composition.fetchKernel(componentTypes, 6);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEach(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.get(0), cursor.get(1), cursor.get(2), cursor.get(3), cursor.get(4), cursor.get(5));
+            }
+        }
+    }
+
+    @Override
+    public <T1> void forEachWithEntity(EntityConsumer1<T1> action) {
+        checkAction(1, true);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of1 kernel = (Kernel.Of1) composition.fetchKernel(componentTypes, 1);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEachWithEntity(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.entity(), cursor.get(0));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2> void forEachWithEntity(EntityConsumer2<T1, T2> action) {
+        checkAction(2, true);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of2 kernel = (Kernel.Of2) composition.fetchKernel(componentTypes, 2);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEachWithEntity(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.entity(), cursor.get(0), cursor.get(1));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3> void forEachWithEntity(EntityConsumer3<T1, T2, T3> action) {
+        checkAction(3, true);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of3 kernel = (Kernel.Of3) composition.fetchKernel(componentTypes, 3);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEachWithEntity(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.entity(), cursor.get(0), cursor.get(1), cursor.get(2));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3, T4> void forEachWithEntity(EntityConsumer4<T1, T2, T3, T4> action) {
+        checkAction(4, true);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of4 kernel = (Kernel.Of4) composition.fetchKernel(componentTypes, 4);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEachWithEntity(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.entity(), cursor.get(0), cursor.get(1), cursor.get(2), cursor.get(3));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3, T4, T5> void forEachWithEntity(EntityConsumer5<T1, T2, T3, T4, T5> action) {
+        checkAction(5, true);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of5 kernel = (Kernel.Of5) composition.fetchKernel(componentTypes, 5);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEachWithEntity(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.entity(), cursor.get(0), cursor.get(1), cursor.get(2), cursor.get(3), cursor.get(4));
+            }
+        }
+    }
+
+    @Override
+    public <T1, T2, T3, T4, T5, T6> void forEachWithEntity(EntityConsumer6<T1, T2, T3, T4, T5, T6> action) {
+        checkAction(6, true);
+        DataComposition[] compositions = compositions();
+        ResultCursor<T> cursor = null;
+        for (int c = 0; c < compositions.length; c++) {
+            DataComposition composition = compositions[c];
+            if (isDirect(composition)) {
+                Kernel.Of6 kernel = (Kernel.Of6) composition.fetchKernel(componentTypes, 6);
+                for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    kernel.forEachWithEntity(chunk, action);
+                }
+                continue;
+            }
+            if (cursor == null) {
+                cursor = new ResultCursor<>(this, compositions);
+            }
+            cursor.select(c);
+            while (cursor.advance()) {
+                action.accept(cursor.entity(), cursor.get(0), cursor.get(1), cursor.get(2), cursor.get(3), cursor.get(4), cursor.get(5));
+            }
+        }
+    }
+
+    @Override
+    public Cursor cursor() {
+        return new ResultCursor<>(this, compositions());
+    }
+
+    private static final class ResultCursor<T> implements Cursor {
+        private final ResultSet<T> owner;
+        private final DataComposition[] compositions;
+        private final Object[] components;
+        private int next;
+        private int end;
+        private ChunkedPool.PoolDataIterator<IntEntity> iterator;
+        private int[] columns;
+        private IntEntity entity;
+
+        ResultCursor(ResultSet<T> owner, DataComposition[] compositions) {
+            this.owner = owner;
+            this.compositions = compositions;
+            this.components = new Object[owner.componentTypes.length];
+            this.end = compositions.length;
+        }
+
+        /**
+         * Re-points the cursor at the composition with the given index only.
+         */
+        void select(int composition) {
+            next = composition;
+            end = composition + 1;
+            iterator = null;
+        }
+
+        @Override
+        public boolean advance() {
+            while (iterator == null || !iterator.hasNext()) {
+                if (next == end) {
+                    iterator = null;
+                    entity = null;
+                    Arrays.fill(components, null);
+                    return false;
+                }
+                DataComposition composition = compositions[next++];
+                iterator = owner.selectIterator(composition).iterator();
+                columns = owner.columnsOf(composition);
+            }
+            for (int i = 0; i < components.length; i++) {
+                components[i] = iterator.data(columns[i]);
+            }
+            entity = iterator.next();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <C> C get(int index) {
+            return (C) components[index];
+        }
+
+        @Override
+        public Entity entity() {
+            return entity;
+        }
+    }
+
     private static final class IteratorWrapper<T> implements Iterator<T> {
         private final ResultSet<T> owner;
-        private final Iterator<CompositionRepository.Node> nodesIterator;
+        private final DataComposition[] compositions;
+        private int next;
         private Iterator<T> wrapped;
 
-        public IteratorWrapper(ResultSet<T> owner, Iterator<CompositionRepository.Node> nodesIterator) {
+        public IteratorWrapper(ResultSet<T> owner, DataComposition[] compositions) {
             this.owner = owner;
-            this.nodesIterator = nodesIterator;
-            this.wrapped = this.nodesIterator.hasNext() ?
-                    owner.compositionIterator(this.nodesIterator.next().getComposition()) :
+            this.compositions = compositions;
+            this.wrapped = compositions.length > 0 ?
+                    owner.selectIterator(compositions[next++]) :
                     new Iterator<>() {
                         @Override
                         public boolean hasNext() {
@@ -142,7 +889,7 @@ public abstract class ResultSet<T> implements Results<T> {
         @Override
         public boolean hasNext() {
             return wrapped.hasNext()
-                    || (nodesIterator.hasNext() && (wrapped = owner.compositionIterator(nodesIterator.next().getComposition())).hasNext());
+                    || (next < compositions.length && (wrapped = owner.selectIterator(compositions[next++])).hasNext());
         }
 
         @Override
@@ -151,17 +898,334 @@ public abstract class ResultSet<T> implements Results<T> {
         }
     }
 
+    private static final class ChunkView implements Chunk {
+        private final int[] columns;
+        private final long changedSince;
+        private ChunkedPool.LinkedChunk<IntEntity> chunk;
+        // indexes by column of the composition, resolved at the first write instead of on every setter call
+        private EntityIndex[][] indexes;
+
+        ChunkView(int[] columns, long changedSince) {
+            this.columns = columns;
+            this.changedSince = changedSince;
+        }
+
+        @Override
+        public int size() {
+            return chunk.size();
+        }
+
+        @Override
+        public Object[] column(int index) {
+            return chunk.getColumn(columns[index]);
+        }
+
+        @Override
+        public int[] intColumn(int index, int field) {
+            return (int[]) primitiveColumn(index, field, PrimitiveLayout.INT);
+        }
+
+        @Override
+        public long[] longColumn(int index, int field) {
+            return (long[]) primitiveColumn(index, field, PrimitiveLayout.LONG);
+        }
+
+        @Override
+        public float[] floatColumn(int index, int field) {
+            return (float[]) primitiveColumn(index, field, PrimitiveLayout.FLOAT);
+        }
+
+        @Override
+        public double[] doubleColumn(int index, int field) {
+            return (double[]) primitiveColumn(index, field, PrimitiveLayout.DOUBLE);
+        }
+
+        @Override
+        public int getInt(int index, int field, int entity) {
+            return primitiveColumns(index, field, PrimitiveLayout.INT).getInt(field, entity);
+        }
+
+        @Override
+        public void setInt(int index, int field, int entity, int value) {
+            primitiveColumns(index, field, PrimitiveLayout.INT).setInt(field, entity, value);
+            markChanged(entity, indexesOf(columns[index]));
+        }
+
+        @Override
+        public long getLong(int index, int field, int entity) {
+            return primitiveColumns(index, field, PrimitiveLayout.LONG).getLong(field, entity);
+        }
+
+        @Override
+        public void setLong(int index, int field, int entity, long value) {
+            primitiveColumns(index, field, PrimitiveLayout.LONG).setLong(field, entity, value);
+            markChanged(entity, indexesOf(columns[index]));
+        }
+
+        @Override
+        public float getFloat(int index, int field, int entity) {
+            return primitiveColumns(index, field, PrimitiveLayout.FLOAT).getFloat(field, entity);
+        }
+
+        @Override
+        public void setFloat(int index, int field, int entity, float value) {
+            primitiveColumns(index, field, PrimitiveLayout.FLOAT).setFloat(field, entity, value);
+            markChanged(entity, indexesOf(columns[index]));
+        }
+
+        @Override
+        public double getDouble(int index, int field, int entity) {
+            return primitiveColumns(index, field, PrimitiveLayout.DOUBLE).getDouble(field, entity);
+        }
+
+        @Override
+        public void setDouble(int index, int field, int entity, double value) {
+            primitiveColumns(index, field, PrimitiveLayout.DOUBLE).setDouble(field, entity, value);
+            markChanged(entity, indexesOf(columns[index]));
+        }
+
+        private Object primitiveColumn(int index, int field, int kind) {
+            return primitiveColumns(index, field, kind).getArray(field);
+        }
+
+        private PrimitiveColumns primitiveColumns(int index, int field, int kind) {
+            PrimitiveColumns primitiveColumns = chunk.getPrimitiveColumns(columns[index]);
+            if (primitiveColumns == null) {
+                throw new IllegalArgumentException("The component type at index " + index + " is not a primitive component");
+            }
+            PrimitiveLayout layout = primitiveColumns.getLayout();
+            if (field < 0 || field >= layout.fieldCount() || layout.kind(field) != kind) {
+                throw new IllegalArgumentException("Invalid field " + field + " for " + layout);
+            }
+            return primitiveColumns;
+        }
+
+        @Override
+        public Entity entity(int index) {
+            return chunk.fetchItem(index);
+        }
+
+        @Override
+        public boolean isChanged(int index) {
+            return chunk.getVersion(index) >= changedSince;
+        }
+
+        @Override
+        public void markChanged(int index) {
+            chunk.markChanged(index);
+            for (int column = 0; column < composition().length(); column++) {
+                updateIndexes(index, indexesOf(column));
+            }
+        }
+
+        private void markChanged(int index, EntityIndex[] columnIndexes) {
+            chunk.markChanged(index);
+            updateIndexes(index, columnIndexes);
+        }
+
+        private void updateIndexes(int index, EntityIndex[] columnIndexes) {
+            if (columnIndexes.length == 0) {
+                return;
+            }
+            IntEntity entity = chunk.getItem(index);
+            if (entity != null) {
+                for (int i = 0; i < columnIndexes.length; i++) {
+                    columnIndexes[i].update(entity, composition());
+                }
+            }
+        }
+
+        private EntityIndex[] indexesOf(int column) {
+            EntityIndex[][] resolved = indexes;
+            if (resolved == null) {
+                DataComposition composition = composition();
+                resolved = indexes = new EntityIndex[composition.length()][];
+                for (int i = 0; i < resolved.length; i++) {
+                    resolved[i] = composition.getIndexes(i);
+                }
+            }
+            return resolved[column];
+        }
+
+        private DataComposition composition() {
+            return (DataComposition) chunk.getTenant().getOwner();
+        }
+    }
+
+    /**
+     * A Spliterator that walks compositions, chunks and index ranges of the ResultSet so that
+     * parallel streams can split the work without any shared iterator state.
+     * Splitting prefers composition boundaries, then chunk boundaries and finally halves the index range of a single
+     * chunk. The number of elements is known from the chunk sizes, so the spliterator reports SIZED and SUBSIZED.
+     *
+     * @param <T> the ResultSet element type
+     */
+    private static final class ChunkSpliterator<T> implements Spliterator<T> {
+        private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        private final ResultSet<T> owner;
+        private final DataComposition[] compositions;
+        private final ChunkedPool.LinkedChunk<IntEntity>[] chunks;
+        private final int[] sizes;
+        private final long[] offsets;
+        private int origin;
+        private int fence;
+        private int lo;
+        private int hi;
+        private DataComposition.SelectIterator<T> current;
+        private int remaining;
+
+        @SuppressWarnings("unchecked")
+        ChunkSpliterator(ResultSet<T> owner) {
+            this.owner = owner;
+            List<DataComposition> compositionList = new ArrayList<>();
+            List<ChunkedPool.LinkedChunk<IntEntity>> chunkList = new ArrayList<>();
+            for (DataComposition composition : owner.compositions()) {
+                var iterator = owner.selectIterator(composition).iterator();
+                for (var chunk = iterator.getCurrentChunk(); chunk != null; chunk = chunk.getNext()) {
+                    if (!chunk.isEmpty() && iterator.isChanged(chunk)) {
+                        compositionList.add(composition);
+                        chunkList.add(chunk);
+                    }
+                }
+            }
+            int length = chunkList.size();
+            compositions = compositionList.toArray(new DataComposition[length]);
+            chunks = chunkList.toArray(new ChunkedPool.LinkedChunk[length]);
+            sizes = new int[length];
+            offsets = new long[length + 1];
+            for (int i = 0; i < length; i++) {
+                sizes[i] = chunks[i].size();
+                offsets[i + 1] = offsets[i] + sizes[i];
+            }
+            fence = length;
+            hi = length == 0 ? 0 : sizes[length - 1];
+        }
+
+        private ChunkSpliterator(ChunkSpliterator<T> parent, int origin, int fence, int lo, int hi) {
+            this.owner = parent.owner;
+            this.compositions = parent.compositions;
+            this.chunks = parent.chunks;
+            this.sizes = parent.sizes;
+            this.offsets = parent.offsets;
+            this.origin = origin;
+            this.fence = fence;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            for (; ; ) {
+                if (remaining == 0 && !openNextChunk()) {
+                    return false;
+                }
+                remaining--;
+                if (skipUnchanged()) {
+                    continue;
+                }
+                action.accept(current.next());
+                return true;
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            do {
+                for (; remaining > 0; remaining--) {
+                    if (!skipUnchanged()) {
+                        action.accept(current.next());
+                    }
+                }
+            } while (openNextChunk());
+        }
+
+        private boolean skipUnchanged() {
+            if (!current.iterator().isFiltered() || current.iterator().accepts()) {
+                return false;
+            }
+            current.iterator().skip();
+            return true;
+        }
+
+        private boolean openNextChunk() {
+            while (origin < fence) {
+                int segment = origin++;
+                int from = lo;
+                int to = segment == fence - 1 ? hi : sizes[segment];
+                lo = 0;
+                if (from < to) {
+                    var iterator = owner.selectIterator(compositions[segment]);
+                    // iterators run from the last index down to 0: positions are counted the same way
+                    iterator.iterator().seek(chunks[segment], sizes[segment] - 1 - from);
+                    current = iterator;
+                    remaining = to - from;
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (current != null || origin >= fence) {
+                return null;
+            }
+            if (fence - origin > 1) {
+                int mid = splitPoint();
+                var prefix = new ChunkSpliterator<>(this, origin, mid, lo, sizes[mid - 1]);
+                origin = mid;
+                lo = 0;
+                return prefix;
+            }
+            int half = (hi - lo) >>> 1;
+            if (half == 0) {
+                return null;
+            }
+            var prefix = new ChunkSpliterator<>(this, origin, fence, lo, lo + half);
+            lo += half;
+            return prefix;
+        }
+
+        private int splitPoint() {
+            int mid = (origin + fence) >>> 1;
+            if (compositions[origin] == compositions[fence - 1]) {
+                return mid;
+            }
+            for (int delta = 0; ; delta++) {
+                int right = mid + delta;
+                if (right < fence && compositions[right] != compositions[right - 1]) {
+                    return right;
+                }
+                int left = mid - delta;
+                if (left > origin && compositions[left] != compositions[left - 1]) {
+                    return left;
+                }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining + (origin < fence ? offsets[fence - 1] + hi - offsets[origin] - lo : 0);
+        }
+
+        @Override
+        public int characteristics() {
+            return owner.changedSince > 0 || owner.stateKeys.length > 1 ? Spliterator.ORDERED : CHARACTERISTICS;
+        }
+    }
+
     public final static class With<T> extends ResultSet<T> {
         private final Class<T> type;
 
         public With(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
                     Class<T> type) {
-            super(compositionRepository, nodeMap, false);
+            super(compositionRepository, nodeMap, false, type);
             this.type = type;
         }
 
         @Override
-        Iterator<T> compositionIterator(DataComposition composition) {
+        DataComposition.SelectIterator<T> compositionIterator(DataComposition composition) {
             return composition.selectT(type, composition.getTenant().noItemIterator());
         }
 
@@ -171,18 +1235,33 @@ public abstract class ResultSet<T> implements Results<T> {
         }
     }
 
+    public final static class WithAll extends ResultSet<Object[]> {
+        private final Class<?>[] types;
+
+        public WithAll(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
+                       Class<?>... types) {
+            super(compositionRepository, nodeMap, false, types);
+            this.types = types;
+        }
+
+        @Override
+        DataComposition.SelectIterator<Object[]> compositionIterator(DataComposition composition) {
+            return composition.selectAll(types, getPoolDataIterator(composition, composition.length() > 1));
+        }
+    }
+
     public final static class With1<T> extends ResultSet<Results.With1<T>> {
         private final Class<T> type;
         private final NextWith1<T> nextWith1 = new NextWith1<>();
 
         public With1(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
                      Class<T> type) {
-            super(compositionRepository, nodeMap, true);
+            super(compositionRepository, nodeMap, true, type);
             this.type = type;
         }
 
         @Override
-        Iterator<Results.With1<T>> compositionIterator(DataComposition composition) {
+        DataComposition.SelectIterator<Results.With1<T>> compositionIterator(DataComposition composition) {
             var iterator = getPoolDataIterator(composition, composition.length() > 1);
             var fetcher = iterator instanceof ChunkedPool.PoolDataIteratorWithState<IntEntity> ? nextWith1 : null;
             return composition.select(type, iterator, fetcher);
@@ -196,13 +1275,13 @@ public abstract class ResultSet<T> implements Results<T> {
 
         public With2(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
                      boolean withEntity, Class<T1> type1, Class<T2> type2) {
-            super(compositionRepository, nodeMap, withEntity);
+            super(compositionRepository, nodeMap, withEntity, type1, type2);
             this.type1 = type1;
             this.type2 = type2;
         }
 
         @Override
-        Iterator<Results.With2<T1, T2>> compositionIterator(DataComposition composition) {
+        DataComposition.SelectIterator<Results.With2<T1, T2>> compositionIterator(DataComposition composition) {
             var iterator = getPoolDataIterator(composition, true);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith2 : null;
             return composition.select(type1, type2, iterator, fetcher);
@@ -217,14 +1296,14 @@ public abstract class ResultSet<T> implements Results<T> {
 
         public With3(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
                      boolean withEntity, Class<T1> type1, Class<T2> type2, Class<T3> type3) {
-            super(compositionRepository, nodeMap, withEntity);
+            super(compositionRepository, nodeMap, withEntity, type1, type2, type3);
             this.type1 = type1;
             this.type2 = type2;
             this.type3 = type3;
         }
 
         @Override
-        Iterator<Results.With3<T1, T2, T3>> compositionIterator(DataComposition composition) {
+        DataComposition.SelectIterator<Results.With3<T1, T2, T3>> compositionIterator(DataComposition composition) {
             var iterator = getPoolDataIterator(composition, true);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith3 : null;
             return composition.select(type1, type2, type3, iterator, fetcher);
@@ -240,7 +1319,7 @@ public abstract class ResultSet<T> implements Results<T> {
 
         public With4(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
                      boolean withEntity, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
-            super(compositionRepository, nodeMap, withEntity);
+            super(compositionRepository, nodeMap, withEntity, type1, type2, type3, type4);
             this.type1 = type1;
             this.type2 = type2;
             this.type3 = type3;
@@ -248,7 +1327,7 @@ public abstract class ResultSet<T> implements Results<T> {
         }
 
         @Override
-        Iterator<Results.With4<T1, T2, T3, T4>> compositionIterator(DataComposition composition) {
+        DataComposition.SelectIterator<Results.With4<T1, T2, T3, T4>> compositionIterator(DataComposition composition) {
             var iterator = getPoolDataIterator(composition, true);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith4 : null;
             return composition.select(type1, type2, type3, type4, iterator, fetcher);
@@ -265,7 +1344,7 @@ public abstract class ResultSet<T> implements Results<T> {
 
         public With5(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
                      boolean withEntity, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
-            super(compositionRepository, nodeMap, withEntity);
+            super(compositionRepository, nodeMap, withEntity, type1, type2, type3, type4, type5);
             this.type1 = type1;
             this.type2 = type2;
             this.type3 = type3;
@@ -274,7 +1353,7 @@ public abstract class ResultSet<T> implements Results<T> {
         }
 
         @Override
-        Iterator<Results.With5<T1, T2, T3, T4, T5>> compositionIterator(DataComposition composition) {
+        DataComposition.SelectIterator<Results.With5<T1, T2, T3, T4, T5>> compositionIterator(DataComposition composition) {
             var iterator = getPoolDataIterator(composition, true);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith5 : null;
             return composition.select(type1, type2, type3, type4, type5, iterator, fetcher);
@@ -292,7 +1371,7 @@ public abstract class ResultSet<T> implements Results<T> {
 
         public With6(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
                      boolean withEntity, Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
-            super(compositionRepository, nodeMap, withEntity);
+            super(compositionRepository, nodeMap, withEntity, type1, type2, type3, type4, type5, type6);
             this.type1 = type1;
             this.type2 = type2;
             this.type3 = type3;
@@ -302,7 +1381,7 @@ public abstract class ResultSet<T> implements Results<T> {
         }
 
         @Override
-        Iterator<Results.With6<T1, T2, T3, T4, T5, T6>> compositionIterator(DataComposition composition) {
+        DataComposition.SelectIterator<Results.With6<T1, T2, T3, T4, T5, T6>> compositionIterator(DataComposition composition) {
             var iterator = getPoolDataIterator(composition, true);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith6 : null;
             return composition.select(type1, type2, type3, type4, type5, type6, iterator, fetcher);
@@ -6,11 +6,17 @@
 package dev.dominion.ecs.engine.collections;
 
 import dev.dominion.ecs.engine.system.Logging;
+import dev.dominion.ecs.engine.system.UncheckedUpdater;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 
 /**
  * The ChunkedPool class is the core of the Dominion project.
@@ -24,13 +30,26 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
     private static final System.Logger LOGGER = Logging.getLogger();
     private final LinkedChunk<T>[] chunks;
     private final List<Tenant<T>> tenants = new ArrayList<>();
+    // off-heap columns of released chunks: live iterators and views may still read them, so they are handed over to
+    // the next chunks of the same layout and capacity instead of being freed before the pool is closed
+    private final Map<PrimitiveLayout, List<PrimitiveColumns>> recycledColumns = new HashMap<>();
     private final IdSchema idSchema;
+    private final int initialChunkCapacity;
     private final Logging.Context loggingContext;
+    private final IntStack freeChunkIds = new IntStack(IdSchema.DETACHED_BIT, ID_STACK_CAPACITY);
     private int chunkIndex = -1;
+    private int releasedChunkCount;
+    private int reusedChunkCount;
+    private volatile long tick;
 
-    @SuppressWarnings("unchecked")
     public ChunkedPool(IdSchema idSchema, Logging.Context loggingContext) {
+        this(idSchema, idSchema.chunkCapacity, loggingContext);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ChunkedPool(IdSchema idSchema, int initialChunkCapacity, Logging.Context loggingContext) {
         this.idSchema = idSchema;
+        this.initialChunkCapacity = Math.max(1, Math.min(initialChunkCapacity, idSchema.chunkCapacity));
         this.loggingContext = loggingContext;
         if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
@@ -47,15 +66,22 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         return "ChunkedPool={"
                 + "chunkCount=" + idSchema.chunkCount
                 + ", chunkCapacity=" + idSchema.chunkCapacity
+                + ", initialChunkCapacity=" + initialChunkCapacity
                 + '}';
     }
 
-    private LinkedChunk<T> newChunk(Tenant<T> owner, LinkedChunk<T> previousChunk) {
-        int id = ++chunkIndex;
-        if (id > idSchema.chunkCount - 1) {
+    private synchronized LinkedChunk<T> newChunk(Tenant<T> owner, LinkedChunk<T> previousChunk) {
+        int id = freeChunkIds.pop();
+        if (id != IdSchema.DETACHED_BIT) {
+            reusedChunkCount++;
+        } else if ((id = ++chunkIndex) > idSchema.chunkCount - 1) {
+            chunkIndex--;
             throw new OutOfMemoryError(ChunkedPool.class.getName() + ": cannot create a new memory chunk");
         }
-        LinkedChunk<T> newChunk = new LinkedChunk<>(id, idSchema, previousChunk, owner.dataLength, owner, loggingContext);
+        int capacity = previousChunk == null ?
+                initialChunkCapacity :
+                Math.min(previousChunk.capacity << 1, idSchema.chunkCapacity);
+        LinkedChunk<T> newChunk = new LinkedChunk<>(id, idSchema, capacity, previousChunk, owner.dataLength, owner, loggingContext);
         if (previousChunk != null) {
             previousChunk.setNext(newChunk);
         }
@@ -63,6 +89,20 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         return newChunk;
     }
 
+    private synchronized void releaseChunk(LinkedChunk<T> chunk) {
+        chunks[chunk.id] = null;
+        chunk.recycleColumns(recycledColumns);
+        freeChunkIds.push(chunk.id);
+        releasedChunkCount++;
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Releasing " + chunk
+                    )
+            );
+        }
+    }
+
     private LinkedChunk<T> getChunk(int id) {
         return chunks[idSchema.fetchChunkId(id)];
     }
@@ -71,12 +111,37 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         return getChunk(id).get(id);
     }
 
+    /**
+     * Returns the tick used to stamp the versions of the chunks that are changed.
+     *
+     * @return the current tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    public synchronized long advanceTick() {
+        return ++tick;
+    }
+
     public Tenant<T> newTenant() {
         return newTenant(0, null, null);
     }
 
     public Tenant<T> newTenant(int dataLength, Object owner, Object subject) {
-        Tenant<T> newTenant = new Tenant<>(this, idSchema, dataLength, owner, subject, loggingContext);
+        return newTenant(dataLength, owner, subject, null);
+    }
+
+    public Tenant<T> newTenant(int dataLength, Object owner, Object subject, PrimitiveLayout[] layouts) {
+        return newTenant(dataLength, owner, subject, layouts, null);
+    }
+
+    /**
+     * Creates a tenant that optionally stores no item until one is requested: with a non-null item factory the
+     * chunks allocate their item array only when the first item is set or materialized from its id.
+     */
+    public Tenant<T> newTenant(int dataLength, Object owner, Object subject, PrimitiveLayout[] layouts, IntFunction<T> itemFactory) {
+        Tenant<T> newTenant = new Tenant<>(this, idSchema, dataLength, owner, subject, layouts, itemFactory, loggingContext);
         tenants.add(newTenant);
         return newTenant;
     }
@@ -85,14 +150,54 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         int sum = 0;
         for (int i = 0; i <= chunkIndex; i++) {
             var chunk = chunks[i];
-            sum += chunk.size();
+            if (chunk != null) {
+                sum += chunk.size();
+            }
         }
         return sum;
     }
 
+    public int getReleasedChunkCount() {
+        return releasedChunkCount;
+    }
+
+    public int getReusedChunkCount() {
+        return reusedChunkCount;
+    }
+
+    public int getFreeChunkCount() {
+        return freeChunkIds.size();
+    }
+
+    public synchronized int getRecycledColumnCount() {
+        int count = 0;
+        for (List<PrimitiveColumns> columns : recycledColumns.values()) {
+            count += columns.size();
+        }
+        return count;
+    }
+
+    private synchronized PrimitiveColumns newColumns(PrimitiveLayout layout, int capacity) {
+        List<PrimitiveColumns> recycled = layout.isOffHeap() ? recycledColumns.get(layout) : null;
+        if (recycled != null) {
+            for (int i = recycled.size() - 1; i >= 0; i--) {
+                PrimitiveColumns columns = recycled.get(i);
+                if (columns.getCapacity() == capacity) {
+                    recycled.set(i, recycled.get(recycled.size() - 1));
+                    recycled.remove(recycled.size() - 1);
+                    return columns;
+                }
+            }
+        }
+        return PrimitiveColumns.of(layout, capacity);
+    }
+
     @Override
     public void close() {
         tenants.forEach(Tenant::close);
+        recycledColumns.values().forEach(columns -> columns.forEach(PrimitiveColumns::close));
+        recycledColumns.clear();
+        freeChunkIds.close();
     }
 
     public interface Item {
@@ -101,13 +206,19 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
 
         void setId(int id);
 
-        void setStateId(int id);
-
         LinkedChunk<? extends Item> getChunk();
 
         void setChunk(LinkedChunk<? extends Item> chunk);
 
-        void setStateChunk(LinkedChunk<? extends Item> chunk);
+        /**
+         * Sets the id of the item in a state tenant, an item can be registered in several state tenants.
+         */
+        void setState(LinkedChunk<? extends Item> stateChunk, int stateId);
+
+        /**
+         * Detaches the item from the state tenant of the given chunk.
+         */
+        void clearState(LinkedChunk<? extends Item> stateChunk);
     }
 
     public interface PoolIteratorNextWith1 {
@@ -188,25 +299,30 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         private final ChunkedPool<T> pool;
         private final IdSchema idSchema;
         private final IntStack idStack;
-        private final LinkedChunk<T> firstChunk;
         private final Logging.Context loggingContext;
         private final int dataLength;
         private final Object owner;
         private final Object subject;
-        private LinkedChunk<T> currentChunk;
-        private int nextId = IdSchema.DETACHED_BIT;
-
-        private Tenant(ChunkedPool<T> pool, IdSchema idSchema, int dataLength, Object owner, Object subject, Logging.Context loggingContext) {
+        private final PrimitiveLayout[] layouts;
+        private final IntFunction<T> itemFactory;
+        // removals in progress, new ids wait for them to reuse the holes they leave
+        private final AtomicInteger freeing = new AtomicInteger();
+        private LinkedChunk<T> firstChunk;
+        private volatile LinkedChunk<T> currentChunk;
+
+        private Tenant(ChunkedPool<T> pool, IdSchema idSchema, int dataLength, Object owner, Object subject,
+                       PrimitiveLayout[] layouts, IntFunction<T> itemFactory, Logging.Context loggingContext) {
             this.pool = pool;
             this.idSchema = idSchema;
             this.dataLength = dataLength;
             this.owner = owner;
             this.subject = subject;
+            this.layouts = layouts;
+            this.itemFactory = itemFactory;
             this.loggingContext = loggingContext;
             idStack = new IntStack(IdSchema.DETACHED_BIT, ID_STACK_CAPACITY);
             currentChunk = pool.newChunk(this, null);
             firstChunk = currentChunk;
-            nextId();
             if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
                 LOGGER.log(
                         System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
@@ -221,43 +337,135 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return "Tenant={" +
                     "id=" + id +
                     ", dataLength=" + dataLength +
-                    ", nextId=" + idSchema.idToString(nextId) +
                     ", subject=" + subject +
                     '}';
         }
 
+        /**
+         * Returns the id of a free slot that is published at once, for callers that do not store any item in it.
+         *
+         * @return the new id
+         */
         public int nextId() {
+            int id = reserveId();
+            publish(id);
+            return id;
+        }
+
+        /**
+         * Reserves the slot of a new id, filling the holes left by removals in older chunks first.
+         * Slots of the current chunk are taken with a compare-and-set on the chunk index, so that concurrent
+         * creations only contend on the tenant monitor to reuse holes, to wait for removals in progress or to append
+         * a new chunk.
+         * The slot must be published once stored, removals in the same chunk wait for it before swapping items.
+         *
+         * @return the new id
+         */
+        public int reserveId() {
             boolean loggable = Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.TRACE);
             if (loggable) {
                 LOGGER.log(
                         System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
                                 , "Getting nextId from " + currentChunk
-                                        + " having current nextId " + idSchema.idToString(nextId)
                         )
                 );
             }
-            synchronized (this) {
-                int returnValue = idStack.pop();
-                if (loggable) {
-                    LOGGER.log(
-                            System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
-                                    , "Popping nextId:" + idSchema.idToString(returnValue)
-                            )
-                    );
+            if (idStack.size() > 0 || freeing.get() > 0) {
+                int returnValue;
+                boolean nested = Thread.holdsLock(this);
+                synchronized (this) {
+                    // monitors are not fair, wait for the removals that are queued to leave their holes
+                    while ((returnValue = nextHoleId(null)) == IdSchema.DETACHED_BIT && freeing.get() > 0 && !nested) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
                 }
                 if (returnValue != IdSchema.DETACHED_BIT) {
-                    pool.getChunk(returnValue).incrementIndex();
+                    if (loggable) {
+                        LOGGER.log(
+                                System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
+                                        , "Reusing nextId:" + idSchema.idToString(returnValue)
+                                )
+                        );
+                    }
                     return returnValue;
                 }
-                returnValue = nextId;
-                if (currentChunk.index < idSchema.chunkCapacity - 1) {
-                    nextId = idSchema.createId(currentChunk.id, currentChunk.incrementIndex());
-                    return returnValue;
+            }
+            return nextIds(1);
+        }
+
+        /**
+         * Publishes the slot of an id returned by reserveId once its item and components are stored.
+         *
+         * @param id the reserved id
+         */
+        public void publish(int id) {
+            pool.getChunk(id).publish(1);
+        }
+
+        /**
+         * Reserves up to count contiguous slots at the end of the current chunk with a single compare-and-set,
+         * appending a new chunk when the current one is full. Holes left by removals are not reused.
+         * The number of reserved slots is the minimum between count and the remaining capacity of the chunk from
+         * the returned id, and they must all be published with LinkedChunk::publish once stored.
+         *
+         * @param count the maximum number of slots to reserve
+         * @return the id of the first reserved slot
+         */
+        public int nextIds(int count) {
+            for (; ; ) {
+                LinkedChunk<T> chunk = currentChunk;
+                int index = chunk.tryIncrementIndex(count);
+                if (index > -1) {
+                    return idSchema.createId(chunk.id, index);
+                }
+                if (index == LinkedChunk.LOCKED) {
+                    Thread.onSpinWait(); // a removal is swapping the last item of the chunk
+                    continue;
                 }
-                currentChunk = pool.newChunk(this, currentChunk);
-                nextId = idSchema.createId(currentChunk.id, currentChunk.incrementIndex());
-                return returnValue;
+                synchronized (this) {
+                    // a removal may have freed a slot of the current chunk in the meantime, it would be left as a hole
+                    if (chunk == currentChunk && chunk.index == chunk.capacity - 1) {
+                        currentChunk = pool.newChunk(this, chunk);
+                    }
+                }
+            }
+        }
+
+        private int nextHoleId(LinkedChunk<T> excluded) {
+            int returnValue = IdSchema.DETACHED_BIT;
+            boolean skipped = false;
+            int chunkId;
+            while ((chunkId = idStack.pop()) != IdSchema.DETACHED_BIT) {
+                LinkedChunk<T> chunk = pool.chunks[chunkId];
+                if (chunk == null || chunk.tenant != this || !chunk.hasHoles) {
+                    continue; // stale entry of a released or already filled chunk
+                }
+                if (chunk == excluded) {
+                    skipped = true;
+                    continue;
+                }
+                int index = chunk.tryIncrementIndex();
+                if (index < 0) {
+                    chunk.hasHoles = false; // filled by a concurrent allocation
+                    continue;
+                }
+                returnValue = idSchema.createId(chunkId, index);
+                if (chunk.hasCapacity()) {
+                    idStack.push(chunkId);
+                } else {
+                    chunk.hasHoles = false;
+                }
+                break;
+            }
+            if (skipped) {
+                idStack.push(excluded.id);
             }
+            return returnValue;
         }
 
         public int freeId(int id) {
@@ -273,6 +481,21 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             if (check && (chunkById == null || chunkById.tenant != this)) {
                 throw new IllegalArgumentException("Invalid chunkById [" + chunkById + "] retrieved by [" + id + "]");
             }
+            if (chunkById == null) {
+                return IdSchema.DETACHED_BIT;
+            }
+            freeing.incrementAndGet();
+            synchronized (this) {
+                try {
+                    return freeId(chunkById, id, isState);
+                } finally {
+                    freeing.decrementAndGet();
+                    notifyAll();
+                }
+            }
+        }
+
+        private int freeId(LinkedChunk<T> chunkById, int id, boolean isState) {
             boolean loggable = Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.TRACE);
             synchronized (this) {
                 if (chunkById.isEmpty()) {
@@ -290,44 +513,164 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
                     );
                 }
                 if (reusableId == IdSchema.DETACHED_BIT) return reusableId;
-                if (chunkById != currentChunk) {
-                    if (loggable) {
-                        LOGGER.log(
-                                System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
-                                        , "Pushing reusableId: " + idSchema.idToString(reusableId)
-                                )
-                        );
+                if (chunkById != currentChunk && chunkById.tenant == this) {
+                    if (chunkById.isEmpty() && chunkById.tryRelease()) {
+                        unlink(chunkById);
+                        pool.releaseChunk(chunkById);
+                    } else if (!chunkById.hasHoles) {
+                        if (loggable) {
+                            LOGGER.log(
+                                    System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
+                                            , "Pushing chunk with holes: " + chunkById
+                                    )
+                            );
+                        }
+                        chunkById.hasHoles = true;
+                        idStack.push(chunkById.id);
                     }
-                    idStack.push(reusableId);
-                } else {
-                    nextId = reusableId;
                 }
                 return reusableId;
             }
         }
 
+        /**
+         * Moves up to budget items from the tail of the chunk chain into the holes left by removals in other chunks,
+         * so that emptied chunks are released and iterations stay dense.
+         * Ids and chunks of the moved items are updated, so it must not run while the items are being accessed.
+         *
+         * @param budget  the maximum number of items to move
+         * @param isState true if this tenant holds state ids
+         * @return the number of moved items
+         */
+        public int compact(int budget, boolean isState) {
+            int moved = 0;
+            if (itemFactory != null) {
+                return moved; // moving a slot without item would require to materialize it
+            }
+            synchronized (this) {
+                int[] indexMapping = new int[dataLength];
+                for (int i = 0; i < dataLength; i++) {
+                    indexMapping[i] = i;
+                }
+                while (moved < budget) {
+                    LinkedChunk<T> source = currentChunk.isEmpty() ? currentChunk.previous : currentChunk;
+                    if (source == null || source.isEmpty()) {
+                        break;
+                    }
+                    int lastIndex = source.size() - 1;
+                    T item = source.getItem(lastIndex);
+                    if (item == null) {
+                        break; // id taken but not registered yet
+                    }
+                    int holeId = nextHoleId(source);
+                    if (holeId == IdSchema.DETACHED_BIT) {
+                        break;
+                    }
+                    LinkedChunk<T> target = pool.getChunk(holeId);
+                    try {
+                        if (isState) {
+                            target.setState(holeId, item);
+                        } else {
+                            target.copy(item, source, holeId, indexMapping);
+                        }
+                    } finally {
+                        target.publish(1);
+                    }
+                    freeId(idSchema.createId(source.id, lastIndex), false, isState);
+                    moved++;
+                }
+            }
+            if (moved > 0 && Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+                LOGGER.log(
+                        System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                                , "Compacting " + this + " by moving " + moved + " items"
+                        )
+                );
+            }
+            return moved;
+        }
+
+        /**
+         * Removes all the items at once, chunk by chunk, by releasing every chunk but the current one, which is reset
+         * to be reused. Removed items are flagged as detached unless they have already been moved to another tenant.
+         * It must not run while items of this tenant are being created or accessed.
+         *
+         * @param isState     true if this tenant holds state ids
+         * @param detachItems true to flag the ids of the removed items as detached
+         * @return the number of removed items
+         */
+        public int clear(boolean isState, boolean detachItems) {
+            int cleared = 0;
+            synchronized (this) {
+                LinkedChunk<T> chunk = firstChunk;
+                while (chunk != null) {
+                    LinkedChunk<T> next = chunk.next;
+                    cleared += chunk.clear(isState, detachItems);
+                    if (chunk != currentChunk && chunk.tryRelease()) {
+                        unlink(chunk);
+                        pool.releaseChunk(chunk);
+                    }
+                    chunk = next;
+                }
+                //noinspection StatementWithEmptyBody
+                while (idStack.pop() != IdSchema.DETACHED_BIT) ;
+            }
+            if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+                LOGGER.log(
+                        System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                                , "Clearing " + this + " by removing " + cleared + " items"
+                        )
+                );
+            }
+            return cleared;
+        }
+
+        private void unlink(LinkedChunk<T> chunk) {
+            // a chunk other than the current one always has a next chunk
+            LinkedChunk<T> previous = chunk.previous;
+            LinkedChunk<T> next = chunk.next;
+            next.previous = previous;
+            if (previous != null) {
+                previous.next = next;
+            } else {
+                firstChunk = next;
+            }
+        }
+
         public PoolDataIterator<T> iterator() {
-            return dataLength == 1 ?
-                    new PoolDataIterator<>(firstChunk, idSchema) :
-                    new PoolMultiDataIterator<>(firstChunk, idSchema);
+            return layouts != null ?
+                    new PoolPrimitiveDataIterator<>(firstChunk, idSchema) :
+                    dataLength == 1 ?
+                            new PoolDataIterator<>(firstChunk, idSchema) :
+                            new PoolMultiDataIterator<>(firstChunk, idSchema);
         }
 
         public PoolDataIterator<T> noItemIterator() {
-            return dataLength == 1 ?
-                    new PoolDataNoItemIterator<>(firstChunk, idSchema) :
-                    new PoolMultiDataNoItemIterator<>(firstChunk, idSchema);
+            return layouts != null ?
+                    new PoolPrimitiveDataNoItemIterator<>(firstChunk, idSchema) :
+                    dataLength == 1 ?
+                            new PoolDataNoItemIterator<>(firstChunk, idSchema) :
+                            new PoolMultiDataNoItemIterator<>(firstChunk, idSchema);
         }
 
         public PoolDataIterator<T> iteratorWithState(boolean multiData) {
-            return multiData ?
-                    new PoolMultiDataIteratorWithState<>(firstChunk, idSchema) :
-                    new PoolDataIteratorWithState<>(firstChunk, idSchema);
+            return layouts != null ?
+                    new PoolPrimitiveDataIteratorWithState<>(firstChunk, idSchema) :
+                    multiData ?
+                            new PoolMultiDataIteratorWithState<>(firstChunk, idSchema) :
+                            new PoolDataIteratorWithState<>(firstChunk, idSchema);
         }
 
         public PoolDataIterator<T> noItemIteratorWithState(boolean multiData) {
-            return multiData ?
-                    new PoolMultiDataNoItemIteratorWithState<>(firstChunk, idSchema) :
-                    new PoolDataNoItemIteratorWithState<>(firstChunk, idSchema);
+            return layouts != null ?
+                    new PoolPrimitiveDataNoItemIteratorWithState<>(firstChunk, idSchema) :
+                    multiData ?
+                            new PoolMultiDataNoItemIteratorWithState<>(firstChunk, idSchema) :
+                            new PoolDataNoItemIteratorWithState<>(firstChunk, idSchema);
+        }
+
+        public LinkedChunk<T> getChunk(int id) {
+            return pool.getChunk(id);
         }
 
         public T register(T entry, Object[] data) {
@@ -335,9 +678,13 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         }
 
         public LinkedChunk<T> registerState(T entry) {
-            int stateId = nextId();
+            int stateId = reserveId();
             LinkedChunk<T> stateChunk = pool.getChunk(stateId);
-            stateChunk.setState(stateId, entry);
+            try {
+                stateChunk.setState(stateId, entry);
+            } finally {
+                stateChunk.publish(1);
+            }
             if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.TRACE)) {
                 LOGGER.log(
                         System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
@@ -348,12 +695,20 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return stateChunk;
         }
 
+        /**
+         * Copies the entry to the slot of an id returned by reserveId, which is published once the entry and the
+         * added components are stored.
+         */
         public void migrate(T entry, int newId, int[] indexMapping, int[] addedIndexMapping, Object addedComponent, Object[] addedComponents) {
             LinkedChunk<T> prevChunk = pool.getChunk(entry.getId());
             LinkedChunk<T> newChunk = pool.getChunk(newId);
-            newChunk.copy(entry, prevChunk, newId, indexMapping);
-            if (addedIndexMapping != null) {
-                newChunk.add(newId, addedIndexMapping, addedComponent, addedComponents);
+            try {
+                newChunk.copy(entry, prevChunk, newId, indexMapping);
+                if (addedIndexMapping != null) {
+                    newChunk.add(newId, addedIndexMapping, addedComponent, addedComponents);
+                }
+            } finally {
+                newChunk.publish(1);
             }
         }
 
@@ -361,6 +716,21 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return currentChunk.size();
         }
 
+        /**
+         * Returns the number of ids taken in the tenant by summing the sizes of its chunks.
+         */
+        public int size() {
+            int size = 0;
+            for (LinkedChunk<T> chunk = firstChunk; chunk != null; chunk = chunk.next) {
+                size += chunk.size();
+            }
+            return size;
+        }
+
+        public LinkedChunk<T> getFirstChunk() {
+            return firstChunk;
+        }
+
         public int currentChunkLength() {
             return currentChunk.dataLength;
         }
@@ -384,6 +754,9 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         @Override
         public void close() {
             idStack.close();
+            for (LinkedChunk<T> chunk = firstChunk; chunk != null; chunk = chunk.next) {
+                chunk.close();
+            }
         }
     }
 
@@ -394,6 +767,8 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         protected LinkedChunk<T> currentChunk;
         protected IdSchema idSchema;
         private int begin;
+        private long changedSince;
+        private Predicate<? super T> filter;
 
         public PoolIterator(LinkedChunk<T> currentChunk, IdSchema idSchema) {
             this.currentChunk = currentChunk;
@@ -401,17 +776,120 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             next = begin = currentChunk == null ? 0 : currentChunk.size() - 1;
         }
 
-        @SuppressWarnings("ConstantConditions")
         @Override
         public boolean hasNext() {
-            return next > -1
-                    || ((currentChunk = currentChunk.next) != null && !currentChunk.isEmpty() && (next = begin = currentChunk.size() - 1) == begin);
+            if (changedSince > 0 || filter != null) {
+                return hasNextChanged();
+            }
+            if (next > -1) {
+                return true;
+            }
+            for (LinkedChunk<T> chunk = currentChunk == null ? null : currentChunk.next; chunk != null; chunk = chunk.next) {
+                if (!chunk.isEmpty()) {
+                    currentChunk = chunk;
+                    next = begin = chunk.size() - 1;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean hasNextChanged() {
+            if (currentChunk == null) {
+                return false;
+            }
+            if (!isChanged(currentChunk)) {
+                next = -1;
+            }
+            for (; ; ) {
+                for (; next > -1; next--) {
+                    if (accepts()) {
+                        return true;
+                    }
+                }
+                LinkedChunk<T> chunk = currentChunk.next;
+                while (chunk != null && (chunk.isEmpty() || !isChanged(chunk))) {
+                    chunk = chunk.next;
+                }
+                if (chunk == null) {
+                    return false;
+                }
+                currentChunk = chunk;
+                next = begin = chunk.size() - 1;
+            }
         }
 
-        @SuppressWarnings({"unchecked"})
         @Override
         public T next() {
-            return (T) currentChunk.itemArray[next--];
+            return currentChunk.fetchItem(next--);
+        }
+
+        /**
+         * Restricts the iteration to the items changed at the given tick or later.
+         *
+         * @param tick the oldest tick of the changes to be found
+         * @return this iterator
+         */
+        public PoolIterator<T> changedSince(long tick) {
+            changedSince = tick;
+            return this;
+        }
+
+        public long getChangedSince() {
+            return changedSince;
+        }
+
+        /**
+         * Restricts the iteration to the items accepted by the filter.
+         *
+         * @param filter the test applied to the item of each position
+         * @return this iterator
+         */
+        public PoolIterator<T> filter(Predicate<? super T> filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Returns true if the iteration skips some positions, because of a tick or a filter.
+         */
+        public boolean isFiltered() {
+            return changedSince > 0 || filter != null;
+        }
+
+        /**
+         * Returns true if the next position has changed since the tick of this iterator and is accepted by its filter.
+         */
+        @SuppressWarnings("unchecked")
+        public boolean accepts() {
+            return (changedSince <= 0 || isChanged()) && (filter == null || filter.test((T) currentChunk.itemArray[next]));
+        }
+
+        /**
+         * Returns true if a chunk may hold items changed since the tick of this iterator.
+         */
+        public boolean isChanged(LinkedChunk<T> chunk) {
+            return chunk.version >= changedSince;
+        }
+
+        /**
+         * Returns true if the next item has changed since the tick of this iterator.
+         */
+        public boolean isChanged() {
+            return currentChunk.getVersion(next) >= changedSince;
+        }
+
+        public void skip() {
+            next--;
+        }
+
+        public LinkedChunk<T> getCurrentChunk() {
+            return currentChunk;
+        }
+
+        public void seek(LinkedChunk<T> chunk, int next) {
+            currentChunk = chunk;
+            this.next = begin = next;
         }
     }
 
@@ -477,6 +955,17 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             super(currentChunk, idSchema);
         }
 
+        @Override
+        public boolean isChanged(LinkedChunk<T> chunk) {
+            return true; // versions are stamped on the chunks of the items
+        }
+
+        @Override
+        public boolean isChanged() {
+            var item = currentChunk.itemArray[next];
+            return item.getChunk().getVersion(idSchema.fetchObjectId(item.getId())) >= getChangedSince();
+        }
+
         public Object next(PoolIteratorNextWith1 nextWith1, int i1) {
             var item = currentChunk.itemArray[next];
             var itemChunk = item.getChunk();
@@ -535,6 +1024,14 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             super(currentChunk, idSchema);
         }
 
+        @Override
+        public Object data(int i) {
+            var item = currentChunk.itemArray[next];
+            var itemChunk = item.getChunk();
+            int itemIdx = idSchema.fetchObjectId(item.getId());
+            return itemChunk.multiDataArray[i][itemIdx];
+        }
+
         @Override
         public Object next(PoolIteratorNextWith1 nextWith1, int i1) {
             var item = currentChunk.itemArray[next];
@@ -608,26 +1105,127 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         }
     }
 
+    // PRIMITIVE data iterator
+
+    public static class PoolPrimitiveDataIterator<T extends Item> extends PoolDataIterator<T> {
+        public PoolPrimitiveDataIterator(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public Object data(int i) {
+            return currentChunk.getComponent(i, next);
+        }
+    }
+
+    public static class PoolPrimitiveDataIteratorWithState<T extends Item> extends PoolDataIterator<T> {
+        public PoolPrimitiveDataIteratorWithState(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public boolean isChanged(LinkedChunk<T> chunk) {
+            return true;
+        }
+
+        @Override
+        public boolean isChanged() {
+            var item = currentChunk.itemArray[next];
+            return item.getChunk().getVersion(idSchema.fetchObjectId(item.getId())) >= getChangedSince();
+        }
+
+        @Override
+        public Object data(int i) {
+            var item = currentChunk.itemArray[next];
+            return item.getChunk().getComponent(i, idSchema.fetchObjectId(item.getId()));
+        }
+    }
+
+    public static final class PoolPrimitiveDataNoItemIterator<T extends Item> extends PoolPrimitiveDataIterator<T> {
+        public PoolPrimitiveDataNoItemIterator(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public T next() {
+            next--;
+            return null;
+        }
+    }
+
+    public static final class PoolPrimitiveDataNoItemIteratorWithState<T extends Item> extends PoolPrimitiveDataIteratorWithState<T> {
+        public PoolPrimitiveDataNoItemIteratorWithState(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public T next() {
+            next--;
+            return null;
+        }
+    }
+
     public static final class LinkedChunk<T extends Item> {
+        public static final int LOCKED = Integer.MIN_VALUE;
         private static final System.Logger LOGGER = Logging.getLogger();
+        @SuppressWarnings("rawtypes")
+        private static final UncheckedUpdater.Int<LinkedChunk> indexUpdater;
+        @SuppressWarnings("rawtypes")
+        private static final UncheckedUpdater.Int<LinkedChunk> pendingUpdater;
+
+        static {
+            try {
+                indexUpdater = new UncheckedUpdater.Int<>(LinkedChunk.class, "index");
+                pendingUpdater = new UncheckedUpdater.Int<>(LinkedChunk.class, "pending");
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
         private final IdSchema idSchema;
-        private final Item[] itemArray;
+        private final int capacity;
+        private volatile Item[] itemArray;
         private final Object[] dataArray;
         private final Object[][] multiDataArray;
-        private final LinkedChunk<T> previous;
+        private final PrimitiveColumns[] primitiveColumns;
         private final Tenant<T> tenant;
         private final int id;
         private final int dataLength;
-        private int index = -1;
+        private volatile int index = -1;
+        // slots taken but not published yet, announced before taking them so that a locked index sees them all
+        private volatile int pending;
+        private LinkedChunk<T> previous;
         private LinkedChunk<T> next;
-        private int sizeOffset = 0;
+        private boolean hasHoles;
+        private long version;
+        private volatile long[] versions;
 
         public LinkedChunk(int id, IdSchema idSchema, LinkedChunk<T> previous, int dataLength, Tenant<T> tenant, Logging.Context loggingContext) {
+            this(id, idSchema, idSchema.chunkCapacity, previous, dataLength, tenant, loggingContext);
+        }
+
+        public LinkedChunk(int id, IdSchema idSchema, int capacity, LinkedChunk<T> previous, int dataLength, Tenant<T> tenant, Logging.Context loggingContext) {
             this.idSchema = idSchema;
+            this.capacity = capacity;
             this.dataLength = dataLength;
-            itemArray = new Item[idSchema.chunkCapacity];
-            dataArray = dataLength == 1 ? new Object[idSchema.chunkCapacity * dataLength] : null;
-            multiDataArray = dataLength > 1 ? new Object[dataLength][idSchema.chunkCapacity * dataLength] : null;
+            itemArray = tenant != null && tenant.itemFactory != null ? null : new Item[capacity];
+            primitiveColumns = tenant == null || tenant.layouts == null || dataLength == 0 ?
+                    null : new PrimitiveColumns[dataLength];
+            if (primitiveColumns == null) {
+                dataArray = dataLength == 1 ? new Object[capacity] : null;
+                multiDataArray = dataLength > 1 ? new Object[dataLength][capacity] : null;
+            } else {
+                multiDataArray = dataLength > 1 ? new Object[dataLength][] : null;
+                for (int i = 0; i < dataLength; i++) {
+                    PrimitiveLayout layout = tenant.layouts[i];
+                    if (layout != null) {
+                        primitiveColumns[i] = tenant.pool.newColumns(layout, capacity);
+                    } else if (multiDataArray != null) {
+                        multiDataArray[i] = new Object[capacity];
+                    }
+                }
+                dataArray = dataLength == 1 && primitiveColumns[0] == null ? new Object[capacity] : null;
+            }
             this.previous = previous;
             this.tenant = tenant;
             this.id = id;
@@ -641,71 +1239,241 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         }
 
         public int incrementIndex() {
-            return ++index;
+            return tryIncrementIndex();
+        }
+
+        public int tryIncrementIndex() {
+            return tryIncrementIndex(1);
+        }
+
+        /**
+         * Takes up to count free indices of the chunk with a compare-and-set.
+         * Taken indices are pending until they are published with {@link #publish(int)}.
+         *
+         * @param count the maximum number of indices to take
+         * @return the first taken index, -1 if the chunk is full or {@link #LOCKED} if a removal is in progress
+         */
+        public int tryIncrementIndex(int count) {
+            pendingUpdater.getAndAdd(this, count);
+            int i;
+            while ((i = index) != LOCKED && i < capacity - 1) {
+                int taken = Math.min(count, capacity - 1 - i);
+                if (indexUpdater.compareAndSet(this, i, i + taken)) {
+                    if (taken < count) {
+                        pendingUpdater.getAndAdd(this, taken - count);
+                    }
+                    return i + 1;
+                }
+            }
+            pendingUpdater.getAndAdd(this, -count);
+            return i == LOCKED ? LOCKED : -1;
+        }
+
+        /**
+         * Publishes taken indices once their items and components are stored.
+         *
+         * @param count the number of published indices
+         */
+        public void publish(int count) {
+            pendingUpdater.getAndAdd(this, -count);
+        }
+
+        /**
+         * Locks the index and waits for the taken indices to be published, so that the last index always refers to
+         * a stored slot while locked.
+         */
+        private int lockIndex() {
+            int i;
+            while ((i = index) == LOCKED || !indexUpdater.compareAndSet(this, i, LOCKED)) {
+                Thread.onSpinWait();
+            }
+            while (pending > 0) {
+                Thread.onSpinWait();
+            }
+            return i;
+        }
+
+        private boolean tryRelease() {
+            return indexUpdater.compareAndSet(this, -1, LOCKED);
         }
 
         public int remove(int id, boolean isState) {
             int removedIndex = idSchema.fetchObjectId(id);
-            int lastIndex = --index + sizeOffset;
-            if (lastIndex < 0 || lastIndex >= idSchema.chunkCapacity) {
+            int lastIndex = lockIndex();
+            if (lastIndex < 0) {
+                index = lastIndex;
                 return IdSchema.DETACHED_BIT;
             }
-            Item last = itemArray[lastIndex];
-            Item removed = itemArray[removedIndex];
-            if (last != null && last != removed) {
-                if (!isState) {
+            try {
+                return swapRemove(id, isState, removedIndex, lastIndex);
+            } finally {
+                index = lastIndex - 1;
+            }
+        }
+
+        private int swapRemove(int id, boolean isState, int removedIndex, int lastIndex) {
+            Item[] items = itemArray;
+            Item last = items == null ? null : items[lastIndex];
+            if (removedIndex != lastIndex && (last != null || tenant != null && tenant.itemFactory != null)) {
+                if (last != null && !isState) {
                     last.setId(id);
-                } else {
-                    last.setStateId(id);
+                } else if (last != null) {
+                    last.setState(this, id);
                 }
-                if (dataLength == 1) {
+                if (primitiveColumns != null) {
+                    for (int i = 0; i < dataLength; i++) {
+                        copyComponent(this, i, lastIndex, i, removedIndex);
+                    }
+                } else if (dataLength == 1) {
                     dataArray[removedIndex] = dataArray[lastIndex];
-                }
-                if (dataLength > 1) {
+                } else if (dataLength > 1) {
                     for (int i = 0; i < dataLength; i++) {
                         multiDataArray[i][removedIndex] = multiDataArray[i][lastIndex];
                     }
                 }
-                itemArray[removedIndex] = last;
-                itemArray[lastIndex] = null;
-            } else {
-                itemArray[removedIndex] = null;
+                long[] versions = this.versions;
+                if (versions != null) {
+                    versions[removedIndex] = versions[lastIndex];
+                }
+                if (items != null) {
+                    items[removedIndex] = last;
+                    items[lastIndex] = null;
+                }
+            } else if (items != null) {
+                items[removedIndex] = null;
             }
             return idSchema.mergeId(id, lastIndex);
         }
 
+        private int clear(boolean isState, boolean detachItems) {
+            int lastIndex = lockIndex();
+            Item[] items = itemArray;
+            for (int i = 0; detachItems && items != null && i <= lastIndex; i++) {
+                Item item = items[i];
+                if (item == null) {
+                    continue;
+                }
+                if (!isState) {
+                    item.setId(item.getId() | IdSchema.DETACHED_BIT);
+                    item.setChunk(null);
+                } else {
+                    item.clearState(this);
+                }
+            }
+            int size = lastIndex + 1;
+            if (items != null) {
+                Arrays.fill(items, 0, size, null);
+            }
+            if (dataArray != null) {
+                Arrays.fill(dataArray, 0, size, null);
+            }
+            if (multiDataArray != null) {
+                for (Object[] column : multiDataArray) {
+                    if (column != null) {
+                        Arrays.fill(column, 0, size, null);
+                    }
+                }
+            }
+            hasHoles = false;
+            versions = null;
+            index = -1;
+            return size;
+        }
+
         @SuppressWarnings("unchecked")
         public T get(int id) {
-            return (T) itemArray[idSchema.fetchObjectId(id)];
+            return fetchItem(idSchema.fetchObjectId(id));
+        }
+
+        private Item[] items() {
+            Item[] items = itemArray;
+            if (items == null) {
+                synchronized (this) {
+                    if ((items = itemArray) == null) {
+                        itemArray = items = new Item[capacity];
+                    }
+                }
+            }
+            return items;
+        }
+
+        /**
+         * Returns the item of a slot, creating it with the tenant item factory when the slot does not hold any.
+         *
+         * @param index the slot index
+         * @return the item, or null if the slot is empty and the tenant has no item factory
+         */
+        @SuppressWarnings("unchecked")
+        public T fetchItem(int index) {
+            Item[] items = itemArray;
+            Item item = items == null ? null : items[index];
+            return item != null || tenant == null || tenant.itemFactory == null ? (T) item : materialize(index);
+        }
+
+        @SuppressWarnings("unchecked")
+        private T materialize(int index) {
+            int lastIndex = lockIndex();
+            try {
+                if (index > lastIndex) {
+                    return null;
+                }
+                Item[] items = items();
+                Item item = items[index];
+                if (item == null) {
+                    T newItem = tenant.itemFactory.apply(idSchema.createId(id, index));
+                    newItem.setChunk(this);
+                    items[index] = item = newItem;
+                }
+                return (T) item;
+            } finally {
+                this.index = lastIndex;
+            }
         }
 
         @SuppressWarnings("unchecked")
         public T set(T value, Object[] data) {
             int idx = idSchema.fetchObjectId(value.getId());
-            if (dataLength == 1) {
+            if (primitiveColumns != null) {
+                for (int i = 0; i < dataLength; i++) {
+                    setComponent(i, idx, data[i]);
+                }
+            } else if (dataLength == 1) {
                 dataArray[idx] = data[0];
-            }
-            if (dataLength > 1) {
+            } else if (dataLength > 1) {
                 for (int i = 0; i < dataLength; i++) {
                     multiDataArray[i][idx] = data[i];
                 }
             }
+            stamp(idx);
             value.setChunk(this);
-            return (T) (itemArray[idx] = value);
+            return (T) (items()[idx] = value);
+        }
+
+        @SuppressWarnings("unchecked")
+        public T set(T value, int[] indexMapping, Object[] components) {
+            int idx = idSchema.fetchObjectId(value.getId());
+            add(value.getId(), indexMapping, null, components);
+            value.setChunk(this);
+            return (T) (items()[idx] = value);
         }
 
         public void setState(int stateId, T value) {
             int idx = idSchema.fetchObjectId(stateId);
-            value.setStateId(stateId);
-            value.setStateChunk(this);
-            itemArray[idx] = value;
+            value.setState(this, stateId);
+            items()[idx] = value;
         }
 
         @SuppressWarnings("StatementWithEmptyBody")
         public void copy(T value, LinkedChunk<T> prevChunk, int newId, int[] indexMapping) {
             int prevIdx = idSchema.fetchObjectId(value.getId());
             int newIdx = idSchema.fetchObjectId(newId);
-            if (indexMapping.length > 0) {
+            if (primitiveColumns != null || prevChunk.primitiveColumns != null) {
+                for (int i = 0; i < indexMapping.length; i++) {
+                    if (indexMapping[i] > -1) {
+                        copyComponent(prevChunk, i, prevIdx, indexMapping[i], newIdx);
+                    }
+                }
+            } else if (indexMapping.length > 0) {
                 if (dataLength == 1) { // copy to new dataArray
                     if (prevChunk.dataLength == 1) { // copy from prev.dataArray
                         dataArray[newIdx] = prevChunk.dataArray[prevIdx];
@@ -730,14 +1498,64 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
                     }
                 }
             }
+            stamp(newIdx);
             value.setId(newId);
             value.setChunk(this);
-            itemArray[newIdx] = value;
+            items()[newIdx] = value;
+        }
+
+        /**
+         * Moves a range of items from another chunk to a range of reserved slots of this chunk, copying the
+         * components column by column. The source slots are left untouched and must be cleared afterwards.
+         */
+        public void moveRange(LinkedChunk<T> from, int fromIndex, int toIndex, int length, int[] indexMapping) {
+            for (int i = 0; i < indexMapping.length; i++) {
+                int componentIndex = indexMapping[i];
+                if (componentIndex < 0) {
+                    continue;
+                }
+                PrimitiveColumns columns = from.getPrimitiveColumns(i);
+                if (columns != null) {
+                    columns.copy(fromIndex, primitiveColumns[componentIndex], toIndex, length);
+                } else {
+                    System.arraycopy(from.getColumn(i), fromIndex, getColumn(componentIndex), toIndex, length);
+                }
+            }
+            long tick = tick();
+            version = tick;
+            long[] versions = this.versions;
+            if (versions != null) {
+                Arrays.fill(versions, toIndex, toIndex + length, tick);
+            }
+            Item[] fromItems = from.itemArray;
+            if (fromItems == null && (tenant == null || tenant.itemFactory != null)) {
+                return;
+            }
+            Item[] items = items();
+            for (int i = 0; i < length; i++) {
+                Item item = fromItems == null ? null : fromItems[fromIndex + i];
+                if (item == null && tenant != null && tenant.itemFactory == null && from.tenant.itemFactory != null) {
+                    item = from.tenant.itemFactory.apply(0);
+                }
+                if (item != null) {
+                    item.setId(idSchema.createId(id, toIndex + i));
+                    item.setChunk(this);
+                }
+                items[toIndex + i] = item;
+            }
         }
 
         public void add(int id, int[] addedIndexMapping, Object addedComponent, Object[] addedComponents) {
             int idx = idSchema.fetchObjectId(id);
-            if (dataLength == 1) { // add to dataArray
+            stamp(idx);
+            if (primitiveColumns != null) {
+                if (addedComponent != null) setComponent(addedIndexMapping[0], idx, addedComponent);
+                else for (int i = 0; i < addedIndexMapping.length; i++) {
+                    if (addedIndexMapping[i] > -1) {
+                        setComponent(addedIndexMapping[i], idx, addedComponents[i]);
+                    }
+                }
+            } else if (dataLength == 1) { // add to dataArray
                 if (addedComponent != null) dataArray[idx] = addedComponent;
                 else for (int i = 0; i < addedIndexMapping.length; i++) {
                     if (addedIndexMapping[i] == 0) {
@@ -762,17 +1580,25 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         }
 
         public void unshelve(T value, Object[] dataArray) {
-            value.setId(tenant.nextId());
-            tenant.register(value, dataArray);
+            int id = tenant.reserveId();
+            value.setId(id);
+            try {
+                tenant.register(value, dataArray);
+            } finally {
+                tenant.publish(id);
+            }
         }
 
         public Object[] getData(int id) {
             int idx = idSchema.fetchObjectId(id);
             Object[] data = new Object[dataLength];
-            if (dataLength == 1) {
+            if (primitiveColumns != null) {
+                for (int i = 0; i < dataLength; i++) {
+                    data[i] = getComponent(i, idx);
+                }
+            } else if (dataLength == 1) {
                 data[0] = dataArray[idx];
-            }
-            if (dataLength > 1) {
+            } else if (dataLength > 1) {
                 for (int i = 0; i < dataLength; i++) {
                     data[i] = multiDataArray[i][idx];
                 }
@@ -781,32 +1607,161 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         }
 
         public Object getFromDataArray(int id) {
-            return dataArray[idSchema.fetchObjectId(id)];
+            return primitiveColumns != null ?
+                    getComponent(0, idSchema.fetchObjectId(id)) :
+                    dataArray[idSchema.fetchObjectId(id)];
+        }
+
+        public Object[] getColumn(int componentIndex) {
+            return dataLength == 1 ? dataArray : multiDataArray[componentIndex];
+        }
+
+        public PrimitiveColumns getPrimitiveColumns(int componentIndex) {
+            return primitiveColumns == null ? null : primitiveColumns[componentIndex];
+        }
+
+        public Object getComponent(int componentIndex, int index) {
+            PrimitiveColumns columns;
+            if (primitiveColumns != null && (columns = primitiveColumns[componentIndex]) != null) {
+                return columns.read(index);
+            }
+            return dataLength == 1 ? dataArray[index] : multiDataArray[componentIndex][index];
+        }
+
+        private void setComponent(int componentIndex, int index, Object component) {
+            PrimitiveColumns columns;
+            if (primitiveColumns != null && (columns = primitiveColumns[componentIndex]) != null) {
+                columns.write(index, component);
+                return;
+            }
+            getColumn(componentIndex)[index] = component;
+        }
+
+        private void copyComponent(LinkedChunk<T> from, int fromComponentIndex, int fromIndex, int componentIndex, int index) {
+            PrimitiveColumns columns = from.getPrimitiveColumns(fromComponentIndex);
+            if (columns != null) {
+                columns.copy(fromIndex, primitiveColumns[componentIndex], index);
+                return;
+            }
+            getColumn(componentIndex)[index] = from.getColumn(fromComponentIndex)[fromIndex];
+        }
+
+        public void close() {
+            if (primitiveColumns != null) {
+                for (PrimitiveColumns columns : primitiveColumns) {
+                    if (columns != null) {
+                        columns.close();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Hands the off-heap columns of a released chunk over to the pool instead of closing them, since the chunk can
+         * still be reached by iterators and views created before its release: the next chunks reuse them, so the
+         * native memory stays bounded by the peak of live chunks. Heap columns are left to the garbage collector.
+         */
+        private void recycleColumns(Map<PrimitiveLayout, List<PrimitiveColumns>> recycled) {
+            if (primitiveColumns != null) {
+                for (PrimitiveColumns columns : primitiveColumns) {
+                    if (columns != null && columns.getLayout().isOffHeap()) {
+                        recycled.computeIfAbsent(columns.getLayout(), layout -> new ArrayList<>()).add(columns);
+                    }
+                }
+            }
+        }
+
+        private long tick() {
+            return tenant == null ? 0 : tenant.pool.tick;
+        }
+
+        private void stamp(int index) {
+            long tick = tick();
+            if (version != tick) {
+                version = tick;
+            }
+            long[] versions = this.versions;
+            if (versions != null) {
+                versions[index] = tick;
+            }
+        }
+
+        /**
+         * Stamps an item as changed in the current tick of the pool.
+         * Items are stamped one by one only after the first change of the chunk, before that they all share the
+         * version of the chunk.
+         *
+         * @param index the index of the changed item
+         */
+        public void markChanged(int index) {
+            long[] versions = this.versions;
+            if (versions == null) {
+                synchronized (this) {
+                    if ((versions = this.versions) == null) {
+                        versions = new long[capacity];
+                        Arrays.fill(versions, version);
+                        this.versions = versions;
+                    }
+                }
+            }
+            long tick = tick();
+            versions[index] = tick;
+            version = tick;
+        }
+
+        /**
+         * Returns the latest tick at which an item of the chunk changed.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public long getVersion(int index) {
+            long[] versions = this.versions;
+            return versions == null ? version : versions[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public T getItem(int index) {
+            Item[] items = itemArray;
+            return items == null ? null : (T) items[index];
         }
 
         public Tenant<T> getTenant() {
             return tenant;
         }
 
+        public IdSchema getIdSchema() {
+            return idSchema;
+        }
+
         public int getDataLength() {
             return dataLength;
         }
 
         public boolean hasCapacity() {
-            return index < idSchema.chunkCapacity - 1;
+            int i = index;
+            return i != LOCKED && i < capacity - 1;
+        }
+
+        public int getCapacity() {
+            return capacity;
         }
 
         public LinkedChunk<T> getPrevious() {
             return previous;
         }
 
+        public LinkedChunk<T> getNext() {
+            return next;
+        }
+
         private void setNext(LinkedChunk<T> next) {
             this.next = next;
-            sizeOffset = 1;
         }
 
         public int size() {
-            return index + sizeOffset;
+            return Math.max(index, -1) + 1;
         }
 
         public boolean isEmpty() {
@@ -818,7 +1773,7 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return "LinkedChunk={"
                     + "id=" + id
                     + ", dataLength=" + dataLength
-                    + ", capacity=" + idSchema.chunkCapacity
+                    + ", capacity=" + capacity
                     + ", size=" + size()
                     + ", previous=" + (previous == null ? null : previous.id)
                     + ", next=" + (next == null ? null : next.id)
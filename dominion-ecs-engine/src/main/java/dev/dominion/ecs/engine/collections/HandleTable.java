@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.collections;
+
+import dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
+
+import java.util.Arrays;
+
+/**
+ * The HandleTable class maps stable 64-bit handles to items in O(1).
+ * A handle packs the index of a slot in the lower 32 bits and the generation of the slot in the upper 32 bits:
+ * releasing a handle increments the generation of its slot, so that stale handles are rejected when the slot is
+ * reused. Slots are stored in pages that never move, so lookups do not need any lock.
+ *
+ * @param <T> the type of the items
+ */
+public final class HandleTable<T> implements AutoCloseable {
+    public static final int PAGE_BIT = 12;
+    public static final int PAGE_CAPACITY = 1 << PAGE_BIT;
+    private static final int PAGE_MASK = PAGE_CAPACITY - 1;
+    private final IntStack freeSlots = new IntStack(IdSchema.DETACHED_BIT, 1 << 10);
+    private volatile Object[][] items = new Object[8][];
+    private volatile int[][] generations = new int[8][];
+    private int nextSlot;
+    private int size;
+
+    private static int slot(long handle) {
+        return (int) handle;
+    }
+
+    private static int generation(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    /**
+     * Registers an item to a free slot.
+     *
+     * @param item the item
+     * @return the new handle, never 0
+     */
+    public synchronized long register(T item) {
+        int slot = freeSlots.pop();
+        if (slot == IdSchema.DETACHED_BIT) {
+            if (nextSlot == Integer.MAX_VALUE) {
+                throw new OutOfMemoryError(HandleTable.class.getName() + ": cannot create a new handle");
+            }
+            slot = nextSlot++;
+            int page = slot >>> PAGE_BIT;
+            if (page == items.length) {
+                int newLength = page << 1;
+                generations = Arrays.copyOf(generations, newLength);
+                items = Arrays.copyOf(items, newLength);
+            }
+            if (items[page] == null) {
+                int[] newGenerations = new int[PAGE_CAPACITY];
+                Arrays.fill(newGenerations, 1);
+                generations[page] = newGenerations;
+                items[page] = new Object[PAGE_CAPACITY];
+            }
+        }
+        items[slot >>> PAGE_BIT][slot & PAGE_MASK] = item;
+        size++;
+        return (long) generations[slot >>> PAGE_BIT][slot & PAGE_MASK] << 32 | slot;
+    }
+
+    /**
+     * Returns the item of a handle.
+     *
+     * @param handle the handle
+     * @return the item or null if the handle is unknown or has been released
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long handle) {
+        int slot = slot(handle);
+        int page = slot >>> PAGE_BIT;
+        Object[][] items = this.items;
+        if (slot < 0 || page >= items.length || items[page] == null) {
+            return null;
+        }
+        Object item = items[page][slot & PAGE_MASK];
+        return generations[page][slot & PAGE_MASK] == generation(handle) ? (T) item : null;
+    }
+
+    /**
+     * Releases a handle to reuse its slot with a new generation.
+     *
+     * @param handle the handle
+     * @return false if the handle is unknown or has already been released
+     */
+    public synchronized boolean release(long handle) {
+        if (get(handle) == null) {
+            return false;
+        }
+        int slot = slot(handle);
+        items[slot >>> PAGE_BIT][slot & PAGE_MASK] = null;
+        int[] page = generations[slot >>> PAGE_BIT];
+        if (++page[slot & PAGE_MASK] == 0) {
+            page[slot & PAGE_MASK] = 1; // generation 0 is skipped so that no handle is 0
+        }
+        freeSlots.push(slot);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        freeSlots.close();
+    }
+
+    @Override
+    public String toString() {
+        return "HandleTable={"
+                + "size=" + size
+                + ", slots=" + nextSlot
+                + '}';
+    }
+}
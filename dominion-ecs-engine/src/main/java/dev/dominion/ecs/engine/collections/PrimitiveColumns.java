@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.collections;
+
+import dev.dominion.ecs.engine.system.UnsafeFactory;
+import sun.misc.Unsafe;
+
+import java.lang.invoke.MethodHandle;
+
+import static dev.dominion.ecs.engine.collections.PrimitiveLayout.*;
+
+/**
+ * The PrimitiveColumns class stores the fields of a {@link PrimitiveLayout} component as one primitive column for
+ * each field, holding the components of all the entities of a chunk.
+ * Columns are plain primitive arrays on the heap or, when the layout is off-heap, native memory blocks that must be
+ * released by calling close.
+ */
+public abstract class PrimitiveColumns implements AutoCloseable {
+    protected final PrimitiveLayout layout;
+    protected final int capacity;
+
+    private PrimitiveColumns(PrimitiveLayout layout, int capacity) {
+        this.layout = layout;
+        this.capacity = capacity;
+    }
+
+    public static PrimitiveColumns of(PrimitiveLayout layout, int capacity) {
+        return layout.isOffHeap() ? new OffHeap(layout, capacity) : new Heap(layout, capacity);
+    }
+
+    public PrimitiveLayout getLayout() {
+        return layout;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public abstract Object getArray(int field);
+
+    public abstract int getInt(int field, int index);
+
+    public abstract long getLong(int field, int index);
+
+    public abstract float getFloat(int field, int index);
+
+    public abstract double getDouble(int field, int index);
+
+    public abstract void setInt(int field, int index, int value);
+
+    public abstract void setLong(int field, int index, long value);
+
+    public abstract void setFloat(int field, int index, float value);
+
+    public abstract void setDouble(int field, int index, double value);
+
+    public abstract void copy(int from, PrimitiveColumns target, int to);
+
+    public abstract void copy(int from, PrimitiveColumns target, int to, int length);
+
+    public void write(int index, Object component) {
+        MethodHandle[] getters = layout.getters;
+        try {
+            for (int i = 0; i < getters.length; i++) {
+                switch (layout.kinds[i]) {
+                    case INT -> setInt(i, index, (int) getters[i].invokeExact(component));
+                    case LONG -> setLong(i, index, (long) getters[i].invokeExact(component));
+                    case FLOAT -> setFloat(i, index, (float) getters[i].invokeExact(component));
+                    default -> setDouble(i, index, (double) getters[i].invokeExact(component));
+                }
+            }
+        } catch (Throwable e) {
+            throw unchecked(e);
+        }
+    }
+
+    public Object read(int index) {
+        try {
+            return (Object) layout.reader.invokeExact(this, index);
+        } catch (Throwable e) {
+            throw unchecked(e);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public static final class Heap extends PrimitiveColumns {
+        private final Object[] arrays;
+
+        private Heap(PrimitiveLayout layout, int capacity) {
+            super(layout, capacity);
+            arrays = new Object[layout.kinds.length];
+            for (int i = 0; i < arrays.length; i++) {
+                arrays[i] = switch (layout.kinds[i]) {
+                    case INT -> new int[capacity];
+                    case LONG -> new long[capacity];
+                    case FLOAT -> new float[capacity];
+                    default -> new double[capacity];
+                };
+            }
+        }
+
+        @Override
+        public Object getArray(int field) {
+            return arrays[field];
+        }
+
+        @Override
+        public int getInt(int field, int index) {
+            return ((int[]) arrays[field])[index];
+        }
+
+        @Override
+        public long getLong(int field, int index) {
+            return ((long[]) arrays[field])[index];
+        }
+
+        @Override
+        public float getFloat(int field, int index) {
+            return ((float[]) arrays[field])[index];
+        }
+
+        @Override
+        public double getDouble(int field, int index) {
+            return ((double[]) arrays[field])[index];
+        }
+
+        @Override
+        public void setInt(int field, int index, int value) {
+            ((int[]) arrays[field])[index] = value;
+        }
+
+        @Override
+        public void setLong(int field, int index, long value) {
+            ((long[]) arrays[field])[index] = value;
+        }
+
+        @Override
+        public void setFloat(int field, int index, float value) {
+            ((float[]) arrays[field])[index] = value;
+        }
+
+        @Override
+        public void setDouble(int field, int index, double value) {
+            ((double[]) arrays[field])[index] = value;
+        }
+
+        @Override
+        public void copy(int from, PrimitiveColumns target, int to) {
+            copy(from, target, to, 1);
+        }
+
+        @Override
+        public void copy(int from, PrimitiveColumns target, int to, int length) {
+            Object[] targetArrays = ((Heap) target).arrays;
+            for (int i = 0; i < arrays.length; i++) {
+                System.arraycopy(arrays[i], from, targetArrays[i], to, length);
+            }
+        }
+    }
+
+    public static final class OffHeap extends PrimitiveColumns {
+        private static final Unsafe unsafe = UnsafeFactory.INSTANCE;
+        private final long[] addresses;
+        private final int[] shifts;
+        private long address;
+
+        private OffHeap(PrimitiveLayout layout, int capacity) {
+            super(layout, capacity);
+            int length = layout.kinds.length;
+            addresses = new long[length];
+            shifts = new int[length];
+            long size = 0;
+            for (int i = 0; i < length; i++) {
+                shifts[i] = switch (layout.kinds[i]) {
+                    case INT, FLOAT -> 2;
+                    default -> 3;
+                };
+                size += (long) capacity << shifts[i];
+            }
+            address = unsafe.allocateMemory(size);
+            long offset = address;
+            for (int i = 0; i < length; i++) {
+                addresses[i] = offset;
+                offset += (long) capacity << shifts[i];
+            }
+        }
+
+        private long offset(int field, int index) {
+            return addresses[field] + ((long) index << shifts[field]);
+        }
+
+        @Override
+        public Object getArray(int field) {
+            return null;
+        }
+
+        @Override
+        public int getInt(int field, int index) {
+            return unsafe.getInt(offset(field, index));
+        }
+
+        @Override
+        public long getLong(int field, int index) {
+            return unsafe.getLong(offset(field, index));
+        }
+
+        @Override
+        public float getFloat(int field, int index) {
+            return unsafe.getFloat(offset(field, index));
+        }
+
+        @Override
+        public double getDouble(int field, int index) {
+            return unsafe.getDouble(offset(field, index));
+        }
+
+        @Override
+        public void setInt(int field, int index, int value) {
+            unsafe.putInt(offset(field, index), value);
+        }
+
+        @Override
+        public void setLong(int field, int index, long value) {
+            unsafe.putLong(offset(field, index), value);
+        }
+
+        @Override
+        public void setFloat(int field, int index, float value) {
+            unsafe.putFloat(offset(field, index), value);
+        }
+
+        @Override
+        public void setDouble(int field, int index, double value) {
+            unsafe.putDouble(offset(field, index), value);
+        }
+
+        @Override
+        public void copy(int from, PrimitiveColumns target, int to) {
+            copy(from, target, to, 1);
+        }
+
+        @Override
+        public void copy(int from, PrimitiveColumns target, int to, int length) {
+            OffHeap offHeapTarget = (OffHeap) target;
+            for (int i = 0; i < addresses.length; i++) {
+                unsafe.copyMemory(offset(i, from), offHeapTarget.offset(i, to), (long) length << shifts[i]);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (address != 0) {
+                unsafe.freeMemory(address);
+                address = 0;
+            }
+        }
+    }
+}
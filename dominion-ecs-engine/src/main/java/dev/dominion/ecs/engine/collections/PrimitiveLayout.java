@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.collections;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+
+/**
+ * A PrimitiveLayout describes a record type whose fields are all int, long, float or double, so that a
+ * {@link ChunkedPool} can store its instances as parallel primitive columns instead of object references.
+ * Off-heap layouts keep the columns in native memory, out of reach of the garbage collector.
+ */
+public final class PrimitiveLayout {
+    public static final int INT = 0;
+    public static final int LONG = 1;
+    public static final int FLOAT = 2;
+    public static final int DOUBLE = 3;
+    private static final MethodHandle[] COLUMN_GETTERS = new MethodHandle[4];
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            COLUMN_GETTERS[INT] = lookup.findVirtual(PrimitiveColumns.class, "getInt",
+                    MethodType.methodType(int.class, int.class, int.class));
+            COLUMN_GETTERS[LONG] = lookup.findVirtual(PrimitiveColumns.class, "getLong",
+                    MethodType.methodType(long.class, int.class, int.class));
+            COLUMN_GETTERS[FLOAT] = lookup.findVirtual(PrimitiveColumns.class, "getFloat",
+                    MethodType.methodType(float.class, int.class, int.class));
+            COLUMN_GETTERS[DOUBLE] = lookup.findVirtual(PrimitiveColumns.class, "getDouble",
+                    MethodType.methodType(double.class, int.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<?> type;
+    private final boolean offHeap;
+    final int[] kinds;
+    final MethodHandle[] getters;
+    // (PrimitiveColumns, int index) -> record, passing each typed column value straight to the canonical constructor
+    final MethodHandle reader;
+
+    private PrimitiveLayout(Class<?> type, boolean offHeap, int[] kinds, MethodHandle[] getters, MethodHandle reader) {
+        this.type = type;
+        this.offHeap = offHeap;
+        this.kinds = kinds;
+        this.getters = getters;
+        this.reader = reader;
+    }
+
+    public static PrimitiveLayout of(Class<?> type) {
+        return of(type, false);
+    }
+
+    public static PrimitiveLayout of(Class<?> type, boolean offHeap) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException("Invalid primitive component [" + type.getName() + "]: it must be a record");
+        }
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] fieldTypes = new Class<?>[components.length];
+        int[] kinds = new int[components.length];
+        for (int i = 0; i < components.length; i++) {
+            fieldTypes[i] = components[i].getType();
+            kinds[i] = kindOf(type, components[i]);
+        }
+        MethodHandle[] getters = new MethodHandle[components.length];
+        MethodHandle reader;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int i = 0; i < components.length; i++) {
+                Method accessor = components[i].getAccessor();
+                accessor.setAccessible(true);
+                getters[i] = lookup.unreflect(accessor).asType(MethodType.methodType(fieldTypes[i], Object.class));
+            }
+            Constructor<?> canonical = type.getDeclaredConstructor(fieldTypes);
+            canonical.setAccessible(true);
+            reader = lookup.unreflectConstructor(canonical)
+                    .asType(MethodType.methodType(Object.class, fieldTypes));
+            int[] reorder = new int[components.length << 1];
+            for (int i = components.length - 1; i >= 0; i--) {
+                reader = MethodHandles.collectArguments(reader, i,
+                        MethodHandles.insertArguments(COLUMN_GETTERS[kinds[i]], 1, i));
+                reorder[(i << 1) + 1] = 1;
+            }
+            reader = MethodHandles.permuteArguments(reader,
+                    MethodType.methodType(Object.class, PrimitiveColumns.class, int.class), reorder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Unable to access primitive component [" + type.getName() + "]", e);
+        }
+        return new PrimitiveLayout(type, offHeap, kinds, getters, reader);
+    }
+
+    private static int kindOf(Class<?> type, RecordComponent component) {
+        Class<?> fieldType = component.getType();
+        if (fieldType == int.class) return INT;
+        if (fieldType == long.class) return LONG;
+        if (fieldType == float.class) return FLOAT;
+        if (fieldType == double.class) return DOUBLE;
+        throw new IllegalArgumentException("Invalid field [" + component.getName() + "] of primitive component ["
+                + type.getName() + "]: only int, long, float and double fields are supported");
+    }
+
+    static RuntimeException unchecked(Throwable throwable) {
+        if (throwable instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (throwable instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(throwable);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public int fieldCount() {
+        return kinds.length;
+    }
+
+    public int kind(int field) {
+        return kinds[field];
+    }
+
+    @Override
+    public String toString() {
+        return "PrimitiveLayout={"
+                + "type=" + type.getSimpleName()
+                + ", kinds=" + Arrays.toString(kinds)
+                + (offHeap ? "|off-heap" : "")
+                + '}';
+    }
+}
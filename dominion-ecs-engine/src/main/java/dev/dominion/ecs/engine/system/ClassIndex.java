@@ -136,6 +136,29 @@ public final class ClassIndex implements AutoCloseable {
         return indexes;
     }
 
+    /**
+     * Provides a bitset with the bit of the index of each given class set, to match the component types of
+     * compositions with word-wise bit operations.
+     * Classes without an index set the bit 0, that is never set by any indexed class.
+     *
+     * @param classes the given classes
+     * @return the bitset of the class indexes
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    public long[] getIndexBits(Class<?>[] classes) {
+        int max = 0;
+        int[] indexes = new int[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            indexes[i] = getIndex(classes[i]);
+            max = Math.max(indexes[i], max);
+        }
+        long[] bits = new long[(max >>> 6) + 1];
+        for (int i = 0; i < indexes.length; i++) {
+            bits[indexes[i] >>> 6] |= 1L << indexes[i];
+        }
+        return bits;
+    }
+
     /**
      * Provides a multi-component type key by implementing the counting-sort algorithm
      *
@@ -176,7 +199,7 @@ public final class ClassIndex implements AutoCloseable {
         return new IndexKey(checkArray, min, max, length);
     }
 
-    public <E extends Enum<E>> IndexKey getIndexKeyByEnum(E enumValue) {
+    public IndexKey getIndexKeyByEnum(Enum<?> enumValue) {
         int cIndex = getIndex(enumValue.getClass());
         cIndex = cIndex == 0 ? getIndexOrAddClass(enumValue.getClass()) : cIndex;
         return new IndexKey(new int[]{cIndex, enumValue.ordinal()});
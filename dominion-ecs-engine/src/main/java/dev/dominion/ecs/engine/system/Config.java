@@ -14,9 +14,11 @@ public final class Config {
     public static final String LOGGING_CALLER = "logging-caller";
     public static final String CLASS_INDEX_BIT = "class-index-bit";
     public static final String CHUNK_BIT = "chunk-bit";
+    public static final String INITIAL_CHUNK_BIT = "initial-chunk-bit";
     public static final String SYSTEM_TIMEOUT_SECONDS = "system-timeout-seconds";
     public static final int DEFAULT_CLASS_INDEX_BIT = 20;
     public static final int DEFAULT_CHUNK_BIT = 12;
+    public static final int DEFAULT_INITIAL_CHUNK_BIT = 6;
     public static final int DEFAULT_SYSTEM_TIMEOUT_SECONDS = 3;
 
     public static boolean showBanner() {
@@ -36,5 +36,9 @@ public class UncheckedUpdater<T> {
         public boolean compareAndSet(T obj, int expect, int update) {
             return unsafe.compareAndSwapInt(obj, offset, expect, update);
         }
+
+        public int getAndAdd(T obj, int delta) {
+            return unsafe.getAndAddInt(obj, offset, delta);
+        }
     }
 }
@@ -2,13 +2,19 @@ package dev.dominion.ecs.test.engine;
 
 import dev.dominion.ecs.engine.CompositionRepository;
 import dev.dominion.ecs.engine.DataComposition;
+import dev.dominion.ecs.engine.IntEntity;
+import dev.dominion.ecs.engine.ResultSet;
+import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
 import dev.dominion.ecs.engine.system.ClassIndex;
+import dev.dominion.ecs.engine.system.Config;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
 
 import java.util.Map;
 
@@ -36,6 +42,84 @@ class CompositionRepositoryTest {
         }
     }
 
+    @Test
+    void footprint() {
+        long fullChunksFootprint = footprint(12);
+        long growableChunksFootprint = footprint(Config.DEFAULT_INITIAL_CHUNK_BIT);
+        // the initial chunks are 64 times smaller than the full ones, while headers, references and the tenant
+        // overhead change with the VM layout: a factor of 4 keeps the check stable across layouts
+        Assertions.assertTrue(growableChunksFootprint * 4 < fullChunksFootprint,
+                "growable " + growableChunksFootprint + " vs full " + fullChunksFootprint);
+    }
+
+    private long footprint(int initialChunkBit) {
+        try (CompositionRepository compositionRepository =
+                     new CompositionRepository(14, 12, initialChunkBit, Logging.Context.TEST)) {
+            long emptySize = graphSize(compositionRepository);
+            fillSmallCompositions(compositionRepository);
+            return graphSize(compositionRepository) - emptySize;
+        }
+    }
+
+    private static long graphSize(Object root) {
+        try {
+            return GraphLayout.parseInstance(root).totalSize();
+        } catch (RuntimeException e) {
+            // JOL cannot walk the object graph on every VM, the chunk sizes are still checked by chunkSizes
+            Assumptions.assumeTrue(false, "object layout not available: " + e);
+            return 0;
+        }
+    }
+
+    @Test
+    void chunkSizes() {
+        try (CompositionRepository compositionRepository =
+                     new CompositionRepository(14, 12, Config.DEFAULT_INITIAL_CHUNK_BIT, Logging.Context.TEST)) {
+            int initialCapacity = 1 << Config.DEFAULT_INITIAL_CHUNK_BIT;
+            fillSmallCompositions(compositionRepository);
+            // small compositions only hold a first chunk of the initial capacity, with columns sized to it
+            DataComposition[] compositions = compositionRepository.getCompositions();
+            Assertions.assertEquals(63, compositions.length);
+            for (DataComposition composition : compositions) {
+                ChunkedPool.LinkedChunk<IntEntity> chunk = composition.getTenant().getFirstChunk();
+                Assertions.assertNull(chunk.getNext());
+                Assertions.assertEquals(initialCapacity, chunk.getCapacity());
+                for (int i = 0; i < chunk.getDataLength(); i++) {
+                    Assertions.assertEquals(initialCapacity, chunk.getColumn(i).length);
+                }
+            }
+
+            // bigger compositions double the capacity of every new chunk up to the chunk capacity
+            DataComposition composition = compositionRepository.getOrCreate(new Object[]{new C1(0), new C2(0)});
+            for (int i = 0; i < 10_000; i++) {
+                composition.createEntity(false, new C1(i), new C2(i));
+            }
+            int expected = initialCapacity, total = 0;
+            for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                Assertions.assertEquals(expected, chunk.getCapacity());
+                Assertions.assertEquals(expected, chunk.getColumn(0).length);
+                Assertions.assertEquals(expected, chunk.getColumn(1).length);
+                total += chunk.size();
+                expected = Math.min(expected << 1, compositionRepository.getIdSchema().chunkCapacity());
+            }
+            Assertions.assertEquals(4096, expected);
+            Assertions.assertEquals(10_001, total);
+        }
+    }
+
+    private void fillSmallCompositions(CompositionRepository compositionRepository) {
+        Object[] all = {new C1(0), new C2(0), new C3(0), new C4(0), new C5(0), new C6(0)};
+        for (int i = 1; i < 1 << all.length; i++) {
+            Object[] components = new Object[Integer.bitCount(i)];
+            for (int j = 0, k = 0; j < all.length; j++) {
+                if ((i & 1 << j) != 0) {
+                    components[k++] = all[j];
+                }
+            }
+            compositionRepository.getOrCreate(components).createEntity(false, components);
+        }
+    }
+
     @Test
     void getOrCreate() {
         try (CompositionRepository compositionRepository = new CompositionRepository(Logging.Context.TEST)) {
@@ -147,6 +231,10 @@ class CompositionRepositoryTest {
             Assertions.assertNotNull(nodeMap);
             Assertions.assertEquals(1, nodeMap.size());
             Assertions.assertEquals(compositionC1, nodeMap.get(compositionC1Key).getComposition());
+
+            nodeMap = compositionRepository.findWith(C1.class);
+            compositionRepository.mapWithout(nodeMap, C4.class);
+            Assertions.assertEquals(3, nodeMap.size());
         }
     }
 
@@ -188,6 +276,32 @@ class CompositionRepositoryTest {
         }
     }
 
+    @Test
+    void releaseCompiled() {
+        try (CompositionRepository compositionRepository = new CompositionRepository(Logging.Context.TEST)) {
+            CompositionRepository.NodeCache nodeCache = compositionRepository.getNodeCache();
+            var query = new ResultSet.With<>(compositionRepository, compositionRepository.findWith(C1.class), C1.class);
+            query.compile();
+            compileDiscarded(compositionRepository);
+            Assertions.assertEquals(2, nodeCache.getQueryCount());
+
+            query.release();
+            Assertions.assertEquals(1, nodeCache.getQueryCount());
+            Assertions.assertTrue(query.toString().contains("compiled=false"));
+
+            Object[][] compositions = {{new C1(0)}, {new C2(0)}, {new C3(0)}, {new C4(0)}, {new C5(0)}};
+            for (int i = 0; i < compositions.length && nodeCache.getQueryCount() > 0; i++) {
+                System.gc();
+                compositionRepository.getOrCreate(compositions[i]);
+            }
+            Assertions.assertEquals(0, nodeCache.getQueryCount());
+        }
+    }
+
+    private static void compileDiscarded(CompositionRepository compositionRepository) {
+        new ResultSet.With<>(compositionRepository, compositionRepository.findWith(C2.class), C2.class).compile();
+    }
+
     record C1(int id) {
     }
 
@@ -197,6 +311,15 @@ class CompositionRepositoryTest {
     record C3(int id) {
     }
 
+    record C4(int id) {
+    }
+
+    record C5(int id) {
+    }
+
+    record C6(int id) {
+    }
+
     @Nested
     public class NodeTest {
         @Test
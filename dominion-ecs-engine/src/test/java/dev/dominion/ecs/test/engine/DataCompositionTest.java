@@ -2,6 +2,7 @@ package dev.dominion.ecs.test.engine;
 
 import dev.dominion.ecs.engine.DataComposition;
 import dev.dominion.ecs.engine.IntEntity;
+import dev.dominion.ecs.engine.Kernel;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.system.ClassIndex;
 import dev.dominion.ecs.engine.system.Config;
@@ -28,6 +29,22 @@ class DataCompositionTest {
         }
     }
 
+    @Test
+    void fetchKernel() {
+        ClassIndex classIndex = new ClassIndex();
+        classIndex.addClass(C1.class);
+        classIndex.addClass(C2.class);
+        classIndex.addClass(C3.class);
+        DataComposition composition = new DataComposition(null, null, classIndex, null
+                , Logging.Context.TEST, C1.class, C2.class, C3.class);
+        Class<?>[] shape = new Class<?>[]{C3.class, C1.class, C2.class};
+        Kernel kernel = composition.fetchKernel(shape, 2);
+        Assertions.assertInstanceOf(Kernel.Of2.class, kernel);
+        Assertions.assertSame(kernel, composition.fetchKernel(new Class<?>[]{C3.class, C1.class}, 2));
+        Assertions.assertNotSame(kernel, composition.fetchKernel(shape, 3));
+        Assertions.assertInstanceOf(Kernel.Of3.class, composition.fetchKernel(shape, 3));
+    }
+
     @Test
     void sortComponentsInPlaceByIndex() {
         ClassIndex classIndex = new ClassIndex();
@@ -3,17 +3,29 @@ package dev.dominion.ecs.test.engine;
 import dev.dominion.ecs.api.Composition;
 import dev.dominion.ecs.api.Dominion;
 import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.LazyEntity;
+import dev.dominion.ecs.api.PartitionedState;
+import dev.dominion.ecs.api.PrimitiveComponent;
+import dev.dominion.ecs.api.Results;
 import dev.dominion.ecs.engine.EntityRepository;
 import dev.dominion.ecs.engine.IntEntity;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 class EntityRepositoryTest {
 
@@ -136,6 +148,30 @@ class EntityRepositoryTest {
         }
     }
 
+    @Test
+    void createEntities() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            int count = 1 << 16;
+            Composition.Of2<C2, C1> ofC2C1 = entityRepository.composition().of(C2.class, C1.class);
+            Entity[] entities = entityRepository.createEntities(count, ofC2C1, (index, components) -> {
+                components[0] = new C2(index);
+                components[1] = new C1(index);
+            });
+            Assertions.assertEquals(count, entities.length);
+            for (int i = 0; i < count; i++) {
+                IntEntity entity = (IntEntity) entities[i];
+                Assertions.assertEquals(entity, entity.getChunk().getTenant().getPool().getEntry(entity.getId()));
+                Assertions.assertEquals(Set.of(new C1(i), new C2(i)), Set.of(Objects.requireNonNull(entity.getComponentArray())));
+            }
+            Assertions.assertEquals(count, entityRepository.findEntitiesWith(C1.class, C2.class).stream().count());
+            Entity[] more = entityRepository.createEntities(3, entityRepository.composition().of(C1.class),
+                    (index, components) -> components[0] = new C1(-index));
+            Assertions.assertArrayEquals(new Object[]{new C1(-2)}, ((IntEntity) more[2]).getComponentArray());
+            Assertions.assertEquals(0, entityRepository.createEntities(0, ofC2C1, null).length);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> entityRepository.createEntities(-1, ofC2C1, null));
+        }
+    }
+
     @Test
     void createEntityAs() {
         try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
@@ -165,6 +201,62 @@ class EntityRepositoryTest {
         }
     }
 
+    @Test
+    void deleteEntities() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            int count = 1 << 12;
+            IntEntity[] entities = new IntEntity[count];
+            for (int i = 0; i < count; i++) {
+                entities[i] = (IntEntity) (i % 2 == 0 ?
+                        entityRepository.createEntity(new C1(i)) :
+                        entityRepository.createEntity(new C1(i), new C2(i)));
+                entities[i].setState(i % 4 < 2 ? State.ONE : State.TWO);
+            }
+            IntEntity other = (IntEntity) entityRepository.createEntity(new C2(-1));
+            Assertions.assertEquals(count / 2,
+                    entityRepository.deleteEntities(entityRepository.findEntitiesWith(C1.class).withState(State.ONE)));
+            Assertions.assertEquals(count / 2, entityRepository.findEntitiesWith(C1.class).stream().count());
+            Assertions.assertEquals(count / 2,
+                    entityRepository.deleteEntities(entityRepository.findEntitiesWith(C1.class)));
+            for (IntEntity entity : entities) {
+                Assertions.assertTrue(entity.isDeleted());
+                Assertions.assertNull(entity.getChunk());
+                Assertions.assertNull(entity.getStateChunk());
+                Assertions.assertFalse(entityRepository.deleteEntity(entity));
+            }
+            Assertions.assertEquals(0, entityRepository.findEntitiesWith(C1.class).stream().count());
+            Assertions.assertFalse(entityRepository.findEntitiesWith(C1.class).withState(State.TWO).iterator().hasNext());
+            Assertions.assertFalse(other.isDeleted());
+            Assertions.assertEquals(1, entityRepository.findEntitiesWith(C2.class).stream().count());
+            IntEntity entity = (IntEntity) entityRepository.createEntity(new C1(0), new C2(0));
+            Assertions.assertNull(entity.getChunk().getTenant().getFirstChunk().getNext());
+            Assertions.assertEquals(1, entityRepository.findEntitiesWith(C1.class).stream().count());
+        }
+    }
+
+    @Test
+    void getEntity() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Entity entity = entityRepository.createEntity(new C1(0));
+            long handle = entity.getHandle();
+            Assertions.assertEquals(handle, entity.getHandle());
+            Assertions.assertSame(entity, entityRepository.getEntity(handle));
+            entity.add(new C2(0));
+            Assertions.assertEquals(handle, entity.getHandle());
+            Assertions.assertSame(entity, entityRepository.getEntity(handle));
+            entityRepository.deleteEntity(entity);
+            Assertions.assertNull(entityRepository.getEntity(handle));
+            Entity reused = entityRepository.createEntity(new C1(1));
+            Assertions.assertEquals((int) handle, (int) reused.getHandle());
+            Assertions.assertNull(entityRepository.getEntity(handle));
+            Assertions.assertSame(reused, entityRepository.getEntity(reused.getHandle()));
+            long reusedHandle = reused.getHandle();
+            entityRepository.deleteEntities(entityRepository.findEntitiesWith(C1.class));
+            Assertions.assertNull(entityRepository.getEntity(reusedHandle));
+            Assertions.assertNotEquals(0, entityRepository.createEntity().getHandle() >>> 32);
+        }
+    }
+
     @Test
     void modifyEntity() {
         try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
@@ -207,6 +299,60 @@ class EntityRepositoryTest {
         }
     }
 
+    @Test
+    void modifyEntities() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            int count = 1 << 12;
+            IntEntity[] entities = new IntEntity[count];
+            for (int i = 0; i < count; i++) {
+                entities[i] = (IntEntity) (i % 2 == 0 ?
+                        entityRepository.createEntity(new C1(i)) :
+                        entityRepository.createEntity(new C1(i), new P1(i, i, i, i)));
+                if (i % 4 == 0) {
+                    entities[i].setState(State.ONE);
+                }
+            }
+            var addingC2 = entityRepository.composition().byAdding1AndRemoving(C2.class);
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> entityRepository.modifyEntities(entityRepository.findEntitiesWith(C1.class), addingC2, null));
+            Assertions.assertEquals(count, entityRepository.modifyEntities(entityRepository.findEntitiesWith(C1.class),
+                    addingC2, (index, components) -> components[0] = new C2(index)));
+            Set<C2> added = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                IntEntity entity = entities[i];
+                Assertions.assertEquals(entity, entity.getChunk().getTenant().getPool().getEntry(entity.getId()));
+                Assertions.assertTrue(entity.has(C2.class));
+                Assertions.assertTrue(entity.contains(new C1(i)));
+                Assertions.assertEquals(i % 2 == 1, entity.contains(new P1(i, i, i, i)));
+                Object[] components = Objects.requireNonNull(entity.getComponentArray());
+                for (Object component : components) {
+                    if (component instanceof C2 c2) {
+                        added.add(c2);
+                    }
+                }
+            }
+            Assertions.assertEquals(count, added.size());
+            Assertions.assertEquals(count / 4,
+                    entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.ONE).stream().count());
+            Assertions.assertEquals(0, entityRepository.findEntitiesWith(C1.class).without(C2.class).stream().count());
+
+            var removingC2 = entityRepository.composition().byRemoving(C2.class);
+            Assertions.assertEquals(count / 4, entityRepository.modifyEntities(
+                    entityRepository.findEntitiesWith(C2.class).withState(State.ONE), removingC2, null));
+            Assertions.assertEquals(count - count / 4, entityRepository.modifyEntities(
+                    entityRepository.findEntitiesWith(C2.class), removingC2, null));
+            Assertions.assertEquals(0, entityRepository.findEntitiesWith(C2.class).stream().count());
+            Assertions.assertEquals(count / 4,
+                    entityRepository.findEntitiesWith(C1.class).withState(State.ONE).stream().count());
+            for (int i = 0; i < count; i++) {
+                Assertions.assertFalse(entities[i].has(C2.class));
+                Assertions.assertEquals(i % 2 == 1 ?
+                                Set.of(new C1(i), new P1(i, i, i, i)) : Set.of(new C1(i)),
+                        Set.of(Objects.requireNonNull(entities[i].getComponentArray())));
+            }
+        }
+    }
+
     @Test
     void avoidEmptyPositionOnDestroyEntity() {
         try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
@@ -422,10 +568,543 @@ class EntityRepositoryTest {
         }
     }
 
+    @Test
+    void parallelStream() {
+        int capacity = 1 << 16;
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            for (int i = 0; i < capacity; i++) {
+                entityRepository.createEntity(new C1(i));
+                entityRepository.createEntity(new C1(i), new C2(i));
+                entityRepository.createEntity(new C1(i), new C2(i), new C3(i));
+            }
+            var spliterator = entityRepository.findEntitiesWith(C1.class).stream().spliterator();
+            Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+            Assertions.assertEquals(capacity * 3L, spliterator.getExactSizeIfKnown());
+            var prefix = spliterator.trySplit();
+            Assertions.assertNotNull(prefix);
+            Assertions.assertEquals(capacity * 3L, prefix.estimateSize() + spliterator.estimateSize());
+
+            Assertions.assertEquals(capacity * 3L, entityRepository.findEntitiesWith(C1.class).stream().parallel().count());
+            Assertions.assertEquals(capacity * 2L, entityRepository.findEntitiesWith(C1.class, C2.class).stream().parallel()
+                    .filter(rs -> rs.comp1().id == rs.comp2().id)
+                    .map(rs -> rs.entity())
+                    .distinct()
+                    .count());
+            long expectedSum = (long) capacity * (capacity - 1) / 2;
+            Assertions.assertEquals(expectedSum, entityRepository.findEntitiesWith(C3.class).stream().parallel()
+                    .mapToLong(rs -> rs.comp().id)
+                    .sum());
+            Assertions.assertEquals(expectedSum * 3, entityRepository.findCompositionsWith(C1.class).stream().parallel()
+                    .mapToLong(C1::id)
+                    .sum());
+        }
+    }
+
+    @Test
+    void forEachChunk() {
+        int capacity = 1 << 14;
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            for (int i = 0; i < capacity; i++) {
+                entityRepository.createEntity(new C1(i));
+                entityRepository.createEntity(new C2(i), new C1(i));
+            }
+            AtomicInteger count = new AtomicInteger(0);
+            AtomicInteger chunks = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C2.class, C1.class).forEachChunk(chunk -> {
+                chunks.incrementAndGet();
+                Object[] c2Column = chunk.column(0);
+                Object[] c1Column = chunk.column(1);
+                for (int i = 0; i < chunk.size(); i++) {
+                    Assertions.assertEquals(((C2) c2Column[i]).id, ((C1) c1Column[i]).id);
+                    Assertions.assertTrue(chunk.entity(i).contains(c1Column[i]));
+                    count.incrementAndGet();
+                }
+            });
+            Assertions.assertTrue(chunks.get() > 1);
+            Assertions.assertEquals(capacity, count.get());
+
+            count.set(0);
+            entityRepository.findCompositionsWith(C1.class).forEachChunk(chunk -> {
+                Object[] c1Column = chunk.column(0);
+                for (int i = 0; i < chunk.size(); i++) {
+                    c1Column[i] = new C1(-1);
+                    count.incrementAndGet();
+                }
+            });
+            Assertions.assertEquals(capacity * 2, count.get());
+            Assertions.assertTrue(entityRepository.findCompositionsWith(C1.class).stream().allMatch(c1 -> c1.id == -1));
+
+            Assertions.assertThrows(UnsupportedOperationException.class,
+                    () -> entityRepository.findEntitiesWith(C1.class).withState(State.ONE).forEachChunk(chunk -> {
+                    }));
+        }
+    }
+
+    @Test
+    void primitiveComponents() {
+        int capacity = 1 << 14;
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            for (int i = 0; i < capacity; i++) {
+                entityRepository.createEntity(new P1(i, i * 2L, i * .5f, i * .25));
+                entityRepository.createEntity(new C1(i), new P1(i, i * 2L, i * .5f, i * .25));
+            }
+            AtomicInteger count = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C1.class, P1.class).stream().forEach(rs -> {
+                Assertions.assertEquals(new P1(rs.comp1().id, rs.comp1().id * 2L, rs.comp1().id * .5f, rs.comp1().id * .25), rs.comp2());
+                Assertions.assertTrue(rs.entity().contains(rs.comp2()));
+                count.incrementAndGet();
+            });
+            Assertions.assertEquals(capacity, count.get());
+
+            count.set(0);
+            entityRepository.findEntitiesWith(P1.class).without(C1.class).forEachChunk(chunk -> {
+                Assertions.assertNull(chunk.column(0));
+                int[] ids = chunk.intColumn(0, 0);
+                float[] xs = chunk.floatColumn(0, 2);
+                for (int i = 0; i < chunk.size(); i++) {
+                    Assertions.assertEquals(ids[i] * .5f, xs[i]);
+                    xs[i] = -1;
+                    count.incrementAndGet();
+                }
+                Assertions.assertThrows(IllegalArgumentException.class, () -> chunk.longColumn(0, 0));
+            });
+            Assertions.assertEquals(capacity, count.get());
+            Assertions.assertTrue(entityRepository.findCompositionsWith(P1.class).without(C1.class).stream()
+                    .allMatch(p1 -> p1.x == -1));
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> entityRepository.findEntitiesWith(C1.class).forEachChunk(chunk -> chunk.intColumn(0, 0)));
+
+            Entity entity = entityRepository.createEntity(new P1(1, 2, 3, 4));
+            entity.add(new C2(5));
+            Assertions.assertEquals(new P1(1, 2, 3, 4), ((IntEntity) entity).getComponentArray()[
+                    ((IntEntity) entity).getComposition().fetchComponentIndex(P1.class)]);
+            entity.setState(State.ONE);
+            var withState = entityRepository.findEntitiesWith(P1.class, C2.class).withState(State.ONE).iterator();
+            Assertions.assertTrue(withState.hasNext());
+            Assertions.assertEquals(new P1(1, 2, 3, 4), withState.next().comp1());
+            entity.removeType(C2.class);
+            Assertions.assertTrue(entity.contains(new P1(1, 2, 3, 4)));
+            entity.removeType(P1.class);
+            Assertions.assertFalse(entity.has(P1.class));
+
+            Entity first = entityRepository.createEntity(new P1(10, 0, 0, 0));
+            Entity last = entityRepository.createEntity(new P1(20, 0, 0, 0));
+            entityRepository.deleteEntity(first);
+            Assertions.assertTrue(last.contains(new P1(20, 0, 0, 0)));
+        }
+    }
+
+    @Test
+    void offHeapPrimitiveComponents() {
+        int capacity = 1 << 14;
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            for (int i = 0; i < capacity; i++) {
+                entityRepository.createEntity(new C1(i), new P2(i, i * .5));
+            }
+            AtomicInteger count = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C1.class, P2.class).forEachChunk(chunk -> {
+                Assertions.assertNull(chunk.intColumn(1, 0));
+                for (int i = 0; i < chunk.size(); i++) {
+                    Assertions.assertEquals(((C1) chunk.column(0)[i]).id, chunk.getInt(1, 0, i));
+                    chunk.setDouble(1, 1, i, -1);
+                    count.incrementAndGet();
+                }
+            });
+            Assertions.assertEquals(capacity, count.get());
+            Assertions.assertTrue(entityRepository.findEntitiesWith(C1.class, P2.class).stream()
+                    .allMatch(rs -> rs.comp2().equals(new P2(rs.comp1().id, -1))));
+
+            Map<Integer, Entity> entities = new HashMap<>();
+            entityRepository.findEntitiesWith(C1.class, P2.class).stream()
+                    .forEach(rs -> entities.put(rs.comp1().id, rs.entity()));
+            AtomicInteger released = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C1.class, P2.class).forEachChunk(chunk -> {
+                if (released.get() == 0) {
+                    int first = chunk.getInt(1, 0, 0);
+                    released.set(chunk.size());
+                    for (int i = chunk.size() - 1; i >= 0; i--) {
+                        entityRepository.deleteEntity(entities.get(((C1) chunk.column(0)[i]).id));
+                    }
+                    // the released chunk keeps its off-heap columns while the view can still read them
+                    Assertions.assertEquals(first, chunk.getInt(1, 0, 0));
+                }
+            });
+            Assertions.assertEquals(capacity - released.get(),
+                    entityRepository.findEntitiesWith(C1.class, P2.class).stream().count());
+
+            Entity entity = entityRepository.createEntity(new P2(1, 2));
+            entity.add(new C2(3));
+            entity.removeType(C2.class);
+            Assertions.assertTrue(entity.contains(new P2(1, 2)));
+        }
+    }
+
+    @Test
+    void lazyEntities() {
+        int capacity = 1 << 14;
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Composition.Of2<C1, L1> composition = entityRepository.composition().of(C1.class, L1.class);
+            Assertions.assertNull(entityRepository.createEntities(capacity, composition,
+                    (index, components) -> {
+                        components[0] = new C1(index);
+                        components[1] = new L1(index);
+                    }));
+            AtomicInteger count = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C1.class, L1.class).forEachChunk(chunk -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    Assertions.assertEquals(((C1) chunk.column(0)[i]).id, ((L1) chunk.column(1)[i]).id);
+                    count.incrementAndGet();
+                }
+            });
+            Assertions.assertEquals(capacity, count.get());
+            Assertions.assertEquals(capacity, entityRepository.findCompositionsWith(C1.class, L1.class).stream().count());
+
+            var withEntity = entityRepository.findEntitiesWith(C1.class, L1.class).iterator().next();
+            IntEntity entity = (IntEntity) withEntity.entity();
+            Assertions.assertSame(entity, entity.getChunk().get(entity.getId()));
+            Assertions.assertTrue(entity.contains(withEntity.comp1()));
+            ChunkedPool.Tenant<IntEntity> tenant = entity.getChunk().getTenant();
+            int items = 0;
+            for (var chunk = tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    items += chunk.getItem(i) == null ? 0 : 1;
+                }
+            }
+            Assertions.assertEquals(1, items);
+            Assertions.assertTrue(entityRepository.deleteEntity(entity));
+            Assertions.assertTrue(entity.isDeleted());
+            Assertions.assertEquals(capacity - 1, entityRepository.findEntitiesWith(C1.class, L1.class).stream()
+                    .filter(rs -> rs.entity().contains(rs.comp1()) && rs.comp1().id == rs.comp2().id)
+                    .count());
+
+            Entity created = entityRepository.createEntity(new C1(-1), new L1(-1));
+            created.add(new C2(-1));
+            Assertions.assertTrue(created.contains(new L1(-1)));
+            Assertions.assertEquals(capacity, entityRepository.deleteEntities(entityRepository.findEntitiesWith(L1.class)));
+        }
+    }
+
+    @Test
+    void changedSince() {
+        int capacity = 1 << 14;
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Entity[] entities = new Entity[capacity];
+            for (int i = 0; i < capacity; i++) {
+                entities[i] = entityRepository.createEntity(new C1(i), new C2(i));
+            }
+            entities[0].setState(State.ONE);
+            entities[1].setState(State.ONE);
+            long tick = entityRepository.advanceTick();
+            Assertions.assertEquals(tick, entityRepository.currentTick());
+            Assertions.assertEquals(0, entityRepository.findEntitiesWith(C1.class, C2.class).changedSince(tick).stream().count());
+
+            entities[1].markChanged();
+            entities[capacity / 2].markChanged();
+            entities[capacity - 1].markChanged();
+            entityRepository.createEntity(new C1(-1), new C2(-1));
+            Set<Integer> expected = Set.of(1, capacity / 2, capacity - 1, -1);
+            Set<Integer> found = new HashSet<>();
+            entityRepository.findEntitiesWith(C1.class, C2.class).changedSince(tick).iterator()
+                    .forEachRemaining(rs -> found.add(rs.comp1().id()));
+            Assertions.assertEquals(expected, found);
+            Assertions.assertEquals(expected, entityRepository.findCompositionsWith(C1.class, C2.class).changedSince(tick)
+                    .stream().parallel().map(rs -> rs.comp2().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(1), entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.ONE)
+                    .changedSince(tick).stream().map(rs -> rs.comp1().id()).collect(Collectors.toSet()));
+
+            AtomicInteger chunks = new AtomicInteger(0);
+            AtomicInteger changed = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C1.class, C2.class).changedSince(tick).forEachChunk(chunk -> {
+                chunks.incrementAndGet();
+                for (int i = 0; i < chunk.size(); i++) {
+                    changed.addAndGet(chunk.isChanged(i) ? 1 : 0);
+                }
+            });
+            Assertions.assertEquals(expected.size(), changed.get());
+            AtomicInteger allChunks = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C1.class, C2.class).forEachChunk(chunk -> allChunks.incrementAndGet());
+            Assertions.assertTrue(chunks.get() < allChunks.get());
+
+            for (int i = 0; i < 10; i++) {
+                entityRepository.createEntity(new P1(i, 0, 0, 0));
+            }
+            tick = entityRepository.advanceTick();
+            entityRepository.findEntitiesWith(P1.class).forEachChunk(chunk -> chunk.setFloat(0, 2, 0, 1f));
+            Assertions.assertEquals(1, entityRepository.findEntitiesWith(P1.class).changedSince(tick).stream()
+                    .filter(rs -> rs.comp().x == 1f).count());
+        }
+    }
+
+    @Test
+    void cursor() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                Entity entity = i % 2 == 0 ?
+                        entityRepository.createEntity(new C1(i), new C2(i)) :
+                        entityRepository.createEntity(new C1(i), new C2(i), new C3(i));
+                if (i % 10 == 0) {
+                    entity.setState(State.ONE);
+                }
+                expected.add(i);
+            }
+            Results.Cursor cursor = entityRepository.findEntitiesWith(C2.class, C1.class).cursor();
+            Set<Integer> found = new HashSet<>();
+            while (cursor.advance()) {
+                C2 c2 = cursor.get(0);
+                C1 c1 = cursor.get(1);
+                Assertions.assertEquals(c1.id(), c2.id());
+                Assertions.assertTrue(cursor.entity().contains(c1));
+                found.add(c1.id());
+            }
+            Assertions.assertEquals(expected, found);
+            Assertions.assertFalse(cursor.advance());
+            Assertions.assertNull(cursor.entity());
+
+            found.clear();
+            cursor = entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.ONE).cursor();
+            while (cursor.advance()) {
+                C2 c2 = cursor.get(1);
+                Assertions.assertTrue(cursor.entity().contains(c2));
+                found.add(c2.id());
+            }
+            Assertions.assertEquals(Set.of(0, 10, 20, 30, 40, 50, 60, 70, 80, 90), found);
+
+            int count = 0;
+            cursor = entityRepository.findCompositionsWith(C3.class).cursor();
+            while (cursor.advance()) {
+                Assertions.assertNull(cursor.entity());
+                Assertions.assertEquals(1, cursor.<C3>get(0).id() % 2);
+                count++;
+            }
+            Assertions.assertEquals(50, count);
+        }
+    }
+
+    @Test
+    void forEach() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            for (int i = 0; i < 100; i++) {
+                Entity entity = i % 2 == 0 ?
+                        entityRepository.createEntity(new C1(i), new C2(i)) :
+                        entityRepository.createEntity(new C1(i), new C2(i), new C3(i));
+                if (i % 10 == 0) {
+                    entity.setState(State.ONE);
+                }
+            }
+            AtomicInteger sum = new AtomicInteger(0);
+            entityRepository.findEntitiesWith(C2.class, C1.class).forEach((C2 c2, C1 c1) -> {
+                Assertions.assertEquals(c1.id(), c2.id());
+                sum.addAndGet(c1.id());
+            });
+            Assertions.assertEquals(4950, sum.get());
+
+            sum.set(0);
+            entityRepository.findEntitiesWith(C1.class, C2.class, C3.class).forEachWithEntity((Entity entity, C1 c1, C2 c2, C3 c3) -> {
+                Assertions.assertTrue(entity.contains(c3));
+                sum.addAndGet(c3.id());
+            });
+            Assertions.assertEquals(2500, sum.get());
+
+            Set<Integer> found = new HashSet<>();
+            entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.ONE)
+                    .forEachWithEntity((Entity entity, C1 c1) -> {
+                        Assertions.assertTrue(entity.contains(c1));
+                        found.add(c1.id());
+                    });
+            Assertions.assertEquals(Set.of(0, 10, 20, 30, 40, 50, 60, 70, 80, 90), found);
+
+            Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    entityRepository.findEntitiesWith(C1.class).forEach((C1 c1, C2 c2) -> {
+                    }));
+            Assertions.assertThrows(UnsupportedOperationException.class, () ->
+                    entityRepository.findCompositionsWith(C1.class, C2.class).forEachWithEntity((Entity entity, C1 c1) -> {
+                    }));
+        }
+    }
+
+    @Test
+    void compile() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Results<Results.With1<C1>> query = entityRepository.findEntitiesWith(C1.class).without(C3.class).compile();
+            Results<Results.With2<C1, C2>> query2 = entityRepository.findEntitiesWith(C1.class, C2.class).compile();
+            Assertions.assertEquals(0, query.stream().count());
+            entityRepository.createEntity(new C1(1));
+            entityRepository.createEntity(new C1(2), new C2(2));
+            entityRepository.createEntity(new C1(3), new C3(3));
+            entityRepository.createEntity(new C2(4));
+            Assertions.assertEquals(Set.of(1, 2), query.stream().map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(2), query2.stream().map(rs -> rs.comp1().id()).collect(Collectors.toSet()));
+
+            entityRepository.createEntity(new C1(5), new C2(5), new C4(5));
+            entityRepository.createEntity(new C1(6), new C2(6), new C3(6));
+            Assertions.assertEquals(Set.of(1, 2, 5), query.stream().map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(2, 5, 6), query2.stream().map(rs -> rs.comp1().id()).collect(Collectors.toSet()));
+            AtomicInteger count = new AtomicInteger(0);
+            query2.forEachChunk(chunk -> count.addAndGet(chunk.size()));
+            Assertions.assertEquals(3, count.get());
+            query2.withAlso(C3.class);
+            Assertions.assertEquals(Set.of(6), query2.stream().map(rs -> rs.comp1().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(1, entityRepository.deleteEntities(query2));
+        }
+    }
+
+    @Test
+    void compact() {
+        int capacity = 1 << 14;
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Entity[] entities = new Entity[capacity];
+            for (int i = 0; i < capacity; i++) {
+                entities[i] = entityRepository.createEntity(new C1(i), new C2(i)).setState(State.ONE);
+            }
+            for (int i = 0; i < capacity; i += 2) {
+                entityRepository.deleteEntity(entities[i]);
+            }
+            Assertions.assertEquals(10, entityRepository.compact(10));
+            int moved = 10;
+            int step;
+            while ((step = entityRepository.compact(1 << 10)) > 0) {
+                moved += step;
+            }
+            Assertions.assertTrue(moved > 0);
+            for (int i = 1; i < capacity; i += 2) {
+                IntEntity entity = (IntEntity) entities[i];
+                Assertions.assertTrue(entity.contains(new C1(i)));
+                Assertions.assertTrue(entity.contains(new C2(i)));
+                Assertions.assertEquals(entity, entity.getChunk().get(entity.getId()));
+                Assertions.assertEquals(entity, entity.getStateChunk().get(entity.getStateId()));
+            }
+            Assertions.assertEquals(capacity / 2, entityRepository.findEntitiesWith(C1.class, C2.class).stream().count());
+            Assertions.assertEquals(capacity / 2, entityRepository.findEntitiesWith(C1.class, C2.class)
+                    .withState(State.ONE).stream().count());
+            ChunkedPool.Tenant<IntEntity> tenant = ((IntEntity) entities[1]).getChunk().getTenant();
+            // only the last two chunks of the chain (the tail and the current one) can have free slots
+            for (var chunk = tenant.getFirstChunk(); chunk.getNext().getNext() != null; chunk = chunk.getNext()) {
+                Assertions.assertEquals(chunk.getCapacity(), chunk.size());
+            }
+        }
+    }
+
+    @Test
+    void partitionedState() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Results<Results.With1<C1>> compiled = entityRepository.findEntitiesWith(C1.class).compile();
+            Results<Results.With1<C1>> compiledOne = entityRepository.findEntitiesWith(C1.class)
+                    .withState(Partition.ONE).compile();
+            Entity entity1 = entityRepository.createEntity(new C1(1), new C2(1)).setState(Partition.ONE);
+            Entity entity2 = entityRepository.createEntity(new C1(2), new C2(2)).setState(Partition.TWO);
+            Entity entity3 = entityRepository.createEntity(new C1(3)).setState(Partition.ONE);
+            entityRepository.createEntity(new C1(4), new C2(4));
+            IntEntity intEntity1 = (IntEntity) entity1;
+            Assertions.assertNotEquals(intEntity1.getComposition(), ((IntEntity) entity2).getComposition());
+            Assertions.assertEquals(intEntity1.getComposition().getPartitionBase(),
+                    ((IntEntity) entity2).getComposition().getPartitionBase());
+            Assertions.assertNull(intEntity1.getStateChunk());
+            Assertions.assertTrue(entity1.contains(new C2(1)));
+
+            Assertions.assertEquals(Set.of(1, 2, 3, 4), entityRepository.findEntitiesWith(C1.class).stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(1, 2, 3, 4), compiled.stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(1, 3), entityRepository.findEntitiesWith(C1.class)
+                    .withState(Partition.ONE).stream().map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(1, 3), compiledOne.stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Set<Integer> ids = new HashSet<>();
+            entityRepository.findEntitiesWith(C1.class, C2.class).withState(Partition.TWO)
+                    .forEach((C1 c1, C2 c2) -> ids.add(c1.id() + c2.id()));
+            Assertions.assertEquals(Set.of(4), ids);
+            AtomicInteger count = new AtomicInteger(0);
+            compiledOne.forEachChunk(chunk -> count.addAndGet(chunk.size()));
+            Assertions.assertEquals(2, count.get());
+
+            entity1.add(new C3(1));
+            Assertions.assertTrue(entity1.contains(new C3(1)));
+            Assertions.assertEquals(Set.of(1, 3), compiledOne.stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            entity1.setState(Partition.TWO);
+            entity3.setState(State.ONE);
+            Assertions.assertEquals(Set.of(3), compiledOne.stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(3), entityRepository.findEntitiesWith(C1.class)
+                    .withState(Partition.ONE).withState(State.ONE).stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            entity3.removeState(Partition.class);
+            Assertions.assertEquals(Set.of(), compiledOne.stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(3), entityRepository.findEntitiesWith(C1.class)
+                    .withState(State.ONE).stream().map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            entity2.setState(null);
+            Assertions.assertEquals(Set.of(1), entityRepository.findEntitiesWith(C1.class)
+                    .withState(Partition.TWO).stream().map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(1, 2, 3, 4), compiled.stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertTrue(entityRepository.deleteEntity(entity1));
+            Assertions.assertEquals(Set.of(2, 3, 4), compiled.stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void multipleStates() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Entity entity1 = entityRepository.createEntity(new C1(1)).setState(State.ONE).setState(Mode.A);
+            Entity entity2 = entityRepository.createEntity(new C1(2)).setState(State.ONE).setState(Mode.B);
+            entityRepository.createEntity(new C1(3)).setState(State.TWO).setState(Mode.A);
+            entityRepository.createEntity(new C1(4), new C2(4)).setState(State.ONE).setState(Mode.A);
+            for (int i = 5; i < 20; i++) {
+                entityRepository.createEntity(new C1(i)).setState(State.ONE);
+            }
+            IntEntity intEntity1 = (IntEntity) entity1;
+            Assertions.assertNotNull(intEntity1.getStateChunk(State.class));
+            Assertions.assertNotNull(intEntity1.getStateChunk(Mode.class));
+
+            var results = entityRepository.findEntitiesWith(C1.class);
+            Assertions.assertEquals(Set.of(1, 4), results.withState(State.ONE).withState(Mode.A).stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            // a state of the same type replaces the required one
+            Assertions.assertEquals(Set.of(2), results.withState(Mode.B).stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            List<Integer> ids = new ArrayList<>();
+            results.forEach((C1 c1) -> ids.add(c1.id()));
+            Assertions.assertEquals(List.of(2), ids);
+
+            entity2.setState(Mode.A);
+            entity1.removeState(State.class);
+            Assertions.assertNull(intEntity1.getStateChunk(State.class));
+            Assertions.assertEquals(Set.of(2, 4), entityRepository.findEntitiesWith(C1.class)
+                    .withState(Mode.A).withState(State.ONE).stream()
+                    .map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(1, 2, 3, 4), entityRepository.findEntitiesWith(C1.class)
+                    .withState(Mode.A).stream().map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+
+            entity2.add(new C2(2));
+            Assertions.assertNotNull(((IntEntity) entity2).getStateChunk(State.class));
+            Assertions.assertEquals(Set.of(2, 4), entityRepository.findEntitiesWith(C1.class, C2.class)
+                    .withState(State.ONE).withState(Mode.A).stream()
+                    .map(rs -> rs.comp1().id()).collect(Collectors.toSet()));
+            Assertions.assertEquals(2, entityRepository.deleteEntities(entityRepository.findEntitiesWith(C1.class)
+                    .withState(State.ONE).withState(Mode.A)));
+            Assertions.assertEquals(Set.of(1, 3), entityRepository.findEntitiesWith(C1.class)
+                    .withState(Mode.A).stream().map(rs -> rs.comp().id()).collect(Collectors.toSet()));
+            entity1.setState(null);
+            Assertions.assertNull(intEntity1.getStateChunk());
+        }
+    }
+
     enum State {
         ONE, TWO
     }
 
+    enum Mode {
+        A, B
+    }
+
+    @PartitionedState
+    enum Partition {
+        ONE, TWO
+    }
+
     record C1(int id) {
     }
 
@@ -443,4 +1122,41 @@ class EntityRepositoryTest {
 
     record C6(int id) {
     }
+
+    @Test
+    void offHeapColumnsRecycling() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            ChunkedPool<IntEntity> pool = null;
+            int peak = 0;
+            for (int round = 0; round < 20; round++) {
+                List<Entity> entities = new ArrayList<>();
+                for (int i = 0; i < 1 << 13; i++) {
+                    entities.add(entityRepository.createEntity(new C1(i), new P2(i + round, round)));
+                }
+                pool = ((IntEntity) entities.get(0)).getComposition().getTenant().getPool();
+                double value = round;
+                Assertions.assertTrue(entityRepository.findEntitiesWith(C1.class, P2.class).stream()
+                        .allMatch(rs -> rs.comp2().equals(new P2(rs.comp1().id + (int) value, value))));
+                entities.forEach(entityRepository::deleteEntity);
+                if (round == 0) {
+                    peak = pool.getRecycledColumnCount();
+                    Assertions.assertTrue(peak > 0);
+                }
+                // the columns of the released chunks are taken again by the next round instead of piling up
+                Assertions.assertEquals(peak, pool.getRecycledColumnCount());
+            }
+        }
+    }
+
+    @LazyEntity
+    record L1(int id) {
+    }
+
+    @PrimitiveComponent
+    record P1(int id, long time, float x, double y) {
+    }
+
+    @PrimitiveComponent(offHeap = true)
+    record P2(int id, double value) {
+    }
 }
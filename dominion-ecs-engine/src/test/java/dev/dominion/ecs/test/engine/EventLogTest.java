@@ -0,0 +1,147 @@
+package dev.dominion.ecs.test.engine;
+
+import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.Events;
+import dev.dominion.ecs.engine.DataComposition;
+import dev.dominion.ecs.engine.EntityRepository;
+import dev.dominion.ecs.engine.EventLog;
+import dev.dominion.ecs.engine.IntEntity;
+import dev.dominion.ecs.engine.system.ClassIndex;
+import dev.dominion.ecs.engine.system.Logging;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+class EventLogTest {
+
+    private static DataComposition composition(ClassIndex classIndex, Class<?>... componentTypes) {
+        for (Class<?> componentType : componentTypes) {
+            classIndex.addClass(componentType);
+        }
+        return new DataComposition(null, null, classIndex, null, Logging.Context.TEST, componentTypes);
+    }
+
+    @Test
+    void advance() {
+        ClassIndex classIndex = new ClassIndex();
+        DataComposition compositionC1 = composition(classIndex, C1.class);
+        EventLog eventLog = new EventLog();
+        IntEntity entity = new IntEntity(0);
+        eventLog.record(Events.Kind.CREATED, entity, compositionC1, compositionC1);
+        Assertions.assertEquals(0, eventLog.size());
+        Assertions.assertEquals(0, eventLog.drain(null, (kind, e) -> Assertions.fail()));
+
+        eventLog.advance();
+        Assertions.assertEquals(1, eventLog.size());
+        List<Entity> drained = new ArrayList<>();
+        Assertions.assertEquals(1, eventLog.drain(C1.class, (kind, e) -> drained.add(e)));
+        Assertions.assertEquals(List.of(entity), drained);
+        // draining does not consume the completed events of the tick
+        Assertions.assertEquals(1, eventLog.drain(C1.class, (kind, e) -> {
+        }));
+
+        eventLog.advance();
+        Assertions.assertEquals(0, eventLog.size());
+    }
+
+    @Test
+    void drainByComponentType() {
+        ClassIndex classIndex = new ClassIndex();
+        DataComposition compositionC1 = composition(classIndex, C1.class);
+        DataComposition compositionC1C2 = composition(classIndex, C1.class, C2.class);
+        DataComposition compositionC3 = composition(classIndex, C3.class);
+        EventLog eventLog = new EventLog();
+        IntEntity entity1 = new IntEntity(1);
+        IntEntity entity2 = new IntEntity(2);
+        IntEntity entity3 = new IntEntity(3);
+        eventLog.record(Events.Kind.CREATED, entity1, compositionC1, compositionC1);
+        eventLog.record(Events.Kind.MODIFIED, entity2, compositionC1, compositionC1C2);
+        eventLog.record(Events.Kind.DELETED, entity3, compositionC3, compositionC3);
+        eventLog.advance();
+
+        Map<Events.Kind, Entity> kinds = new EnumMap<>(Events.Kind.class);
+        Assertions.assertEquals(2, eventLog.drain(C1.class, kinds::put));
+        Assertions.assertEquals(Map.of(Events.Kind.CREATED, entity1, Events.Kind.MODIFIED, entity2), kinds);
+        // a migration is seen by the types of both the source and the target composition
+        kinds.clear();
+        Assertions.assertEquals(1, eventLog.drain(C2.class, kinds::put));
+        Assertions.assertEquals(Map.of(Events.Kind.MODIFIED, entity2), kinds);
+        Assertions.assertEquals(1, eventLog.drain(C3.class, (kind, e) -> Assertions.assertSame(entity3, e)));
+        Assertions.assertEquals(0, eventLog.drain(C4.class, (kind, e) -> Assertions.fail()));
+        Assertions.assertEquals(3, eventLog.drain(null, (kind, e) -> {
+        }));
+    }
+
+    @Test
+    void grow() {
+        ClassIndex classIndex = new ClassIndex();
+        DataComposition compositionC1 = composition(classIndex, C1.class);
+        EventLog eventLog = new EventLog();
+        int capacity = EventLog.INITIAL_CAPACITY * 3;
+        for (int tick = 0; tick < 3; tick++) {
+            for (int i = 0; i < capacity; i++) {
+                eventLog.record(Events.Kind.CREATED, new IntEntity(i), compositionC1, compositionC1);
+            }
+            eventLog.advance();
+            Assertions.assertEquals(capacity, eventLog.size());
+            int[] next = {0};
+            Assertions.assertEquals(capacity, eventLog.drain(C1.class,
+                    (kind, e) -> Assertions.assertEquals(next[0]++, ((IntEntity) e).getId())));
+        }
+    }
+
+    @Test
+    void recordedByRepository() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Events events = entityRepository.events();
+            Entity entity1 = entityRepository.createEntity(new C1(1));
+            Entity entity2 = entityRepository.createEntity(new C1(2), new C2(2));
+            entityRepository.createEntities(3, entityRepository.composition().of(C3.class),
+                    (index, components) -> components[0] = new C3(index));
+            Assertions.assertEquals(0, events.size());
+            entityRepository.advanceTick();
+            Assertions.assertEquals(5, events.size());
+            List<Entity> created = new ArrayList<>();
+            Assertions.assertEquals(2, events.drain(C1.class, (kind, entity) -> {
+                Assertions.assertEquals(Events.Kind.CREATED, kind);
+                created.add(entity);
+            }));
+            Assertions.assertEquals(List.of(entity1, entity2), created);
+            Assertions.assertEquals(3, events.drain(C3.class, (kind, entity) -> {
+            }));
+            Assertions.assertEquals(5, events.drain(null, (kind, entity) -> {
+            }));
+
+            entity1.add(new C2(1));
+            entityRepository.deleteEntity(entity2);
+            entityRepository.deleteEntities(entityRepository.findEntitiesWith(C3.class));
+            entityRepository.advanceTick();
+            Map<Events.Kind, Integer> kinds = new EnumMap<>(Events.Kind.class);
+            Assertions.assertEquals(2, events.drain(C2.class, (kind, entity) -> kinds.merge(kind, 1, Integer::sum)));
+            Assertions.assertEquals(Map.of(Events.Kind.MODIFIED, 1, Events.Kind.DELETED, 1), kinds);
+            Assertions.assertEquals(3, events.drain(C3.class, (kind, entity) -> {
+                Assertions.assertEquals(Events.Kind.DELETED, kind);
+                Assertions.assertTrue(entity.isDeleted());
+            }));
+
+            entityRepository.advanceTick();
+            Assertions.assertEquals(0, events.size());
+        }
+    }
+
+    record C1(int id) {
+    }
+
+    record C2(int id) {
+    }
+
+    record C3(int id) {
+    }
+
+    record C4(int id) {
+    }
+}
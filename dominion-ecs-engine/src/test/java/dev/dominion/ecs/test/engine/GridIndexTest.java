@@ -0,0 +1,184 @@
+package dev.dominion.ecs.test.engine;
+
+import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.Results;
+import dev.dominion.ecs.api.SpatialIndex;
+import dev.dominion.ecs.engine.EntityRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class GridIndexTest {
+
+    private static double distance(Point point, double x, double y) {
+        return Math.hypot(point.x - x, point.y - y);
+    }
+
+    private static Set<Entity> entities(List<Results.With1<Point>> found) {
+        return found.stream().map(Results.With1::entity).collect(Collectors.toSet());
+    }
+
+    private static void assertMatchesScan(SpatialIndex<Point> grid, Map<Entity, Point> points
+            , double x, double y, double radius, int k) {
+        Assertions.assertEquals(
+                points.keySet().stream().filter(e -> distance(points.get(e), x, y) <= radius)
+                        .collect(Collectors.toSet()),
+                entities(grid.findInRange(x, y, radius)));
+        Assertions.assertEquals(
+                points.keySet().stream().map(e -> distance(points.get(e), x, y)).sorted()
+                        .limit(k).collect(Collectors.toList()),
+                grid.findNearest(x, y, k).stream().map(rs -> distance(rs.comp(), x, y))
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void findInRangeAndNearest() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Random random = new Random(42);
+            Map<Entity, Point> points = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                Point point = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100);
+                points.put(i % 2 == 0 ? entityRepository.createEntity(point) :
+                        entityRepository.createEntity(new C1(i), point), point);
+            }
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> entityRepository.createSpatialIndex(Point.class, p -> p.x, p -> p.y, 0));
+            SpatialIndex<Point> grid = entityRepository.createSpatialIndex(Point.class, p -> p.x, p -> p.y, 10);
+            Assertions.assertEquals(1000, grid.size());
+            Assertions.assertThrows(IllegalArgumentException.class, () -> grid.findNearest(0, 0, -1));
+            Assertions.assertTrue(grid.findNearest(0, 0, 0).isEmpty());
+            Assertions.assertTrue(grid.findInRange(0, 0, -1).isEmpty());
+
+            for (double[] query : new double[][]{{0, 0, 15}, {-95, 80, 30}, {500, 500, 5}, {3, -7, 1000}}) {
+                assertMatchesScan(grid, points, query[0], query[1], query[2], 7);
+            }
+            Assertions.assertEquals(1000, grid.findNearest(0, 0, 2000).size());
+        }
+    }
+
+    @Test
+    void negativeCoordinates() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            SpatialIndex<Point> grid = entityRepository.createSpatialIndex(Point.class, p -> p.x, p -> p.y, 4);
+            Random random = new Random(7);
+            Map<Entity, Point> points = new HashMap<>();
+            for (int i = 0; i < 500; i++) {
+                // around the origin, where the cells of -0.5 and 0.5 differ, and far in the negative quadrant
+                Point point = i % 2 == 0 ?
+                        new Point(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10) :
+                        new Point(-1e6 - random.nextDouble() * 50, -1e6 - random.nextDouble() * 50);
+                points.put(entityRepository.createEntity(point), point);
+            }
+            for (double[] query : new double[][]{{-0.5, -0.5, 3}, {0, 0, 10}, {-1e6 - 25, -1e6 - 25, 12}
+                    , {-1e6, -1e6, 1}, {-3.99, 3.99, 0.5}}) {
+                assertMatchesScan(grid, points, query[0], query[1], query[2], 5);
+            }
+        }
+    }
+
+    @Test
+    void cellBoundaries() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            SpatialIndex<Point> grid = entityRepository.createSpatialIndex(Point.class, p -> p.x, p -> p.y, 10);
+            Entity right = entityRepository.createEntity(new Point(10, 0));
+            Entity left = entityRepository.createEntity(new Point(-10, 0));
+            Entity bottom = entityRepository.createEntity(new Point(0, -10));
+            Entity corner = entityRepository.createEntity(new Point(-20, -20));
+            Entity origin = entityRepository.createEntity(new Point(0, 0));
+            // points exactly at the radius are in range, also when they lie on the edge of a cell
+            Assertions.assertEquals(Set.of(right, left, bottom, origin), entities(grid.findInRange(0, 0, 10)));
+            Assertions.assertEquals(Set.of(origin), entities(grid.findInRange(0, 0, 9.999)));
+            Assertions.assertEquals(Set.of(corner), entities(grid.findInRange(-20, -15, 5)));
+            Assertions.assertEquals(Set.of(left, corner), entities(grid.findInRange(-15, -10, Math.hypot(5, 10))));
+            Assertions.assertEquals(Set.of(right), entities(grid.findInRange(20, 0, 10)));
+            Assertions.assertEquals(origin, grid.findNearest(-0.001, -0.001, 1).get(0).entity());
+            Assertions.assertEquals(left, grid.findNearest(-9.999, 0, 1).get(0).entity());
+            Assertions.assertEquals(right, grid.findNearest(10, 9.999, 1).get(0).entity());
+        }
+    }
+
+    @Test
+    void nearestAcrossEmptyRings() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            SpatialIndex<Point> grid = entityRepository.createSpatialIndex(Point.class, p -> p.x, p -> p.y, 1);
+            Map<Entity, Point> points = new HashMap<>();
+            // a block of occupied cells far enough from the query to visit several empty rings first
+            for (int x = 50; x < 70; x++) {
+                for (int y = 50; y < 70; y++) {
+                    Point point = new Point(x + .5, y + .5);
+                    points.put(entityRepository.createEntity(point), point);
+                }
+            }
+            Point isolated = new Point(45.5, 30.5);
+            Entity isolatedEntity = entityRepository.createEntity(isolated);
+            points.put(isolatedEntity, isolated);
+            Assertions.assertEquals(isolatedEntity, grid.findNearest(40, 30, 1).get(0).entity());
+            for (double[] query : new double[][]{{40, 60}, {60, 40}, {75, 75}, {49.5, 49.5}, {40, 30}}) {
+                assertMatchesScan(grid, points, query[0], query[1], 5, 1);
+                assertMatchesScan(grid, points, query[0], query[1], 5, 12);
+            }
+        }
+    }
+
+    @Test
+    void update() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            SpatialIndex<Point> grid = entityRepository.createSpatialIndex(Point.class, p -> p.x, p -> p.y, 10);
+            List<Entity> entities = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Point point = new Point(i, -i);
+                entities.add(i % 2 == 0 ? entityRepository.createEntity(point) :
+                        entityRepository.createEntity(new C1(i), point));
+            }
+            // moved positions are picked up by markChanged, within the same cell or to another one
+            Entity moving = entities.get(1);
+            Point point = (Point) grid.findNearest(1, -1, 1).get(0).comp();
+            point.x = 1.5;
+            moving.markChanged();
+            Assertions.assertEquals(moving, grid.findNearest(1.5, -1, 1).get(0).entity());
+            point.x = 1000;
+            point.y = 1000;
+            moving.markChanged();
+            Assertions.assertEquals(moving, grid.findNearest(990, 990, 1).get(0).entity());
+            Assertions.assertEquals(point, grid.findInRange(1000, 1000, 1).get(0).comp());
+            point.x = Double.NaN;
+            moving.markChanged();
+            Assertions.assertEquals(99, grid.size());
+            point.x = 1000;
+            moving.markChanged();
+
+            // migrations keep the entity while the position type is kept
+            moving.add(new C2(1));
+            Assertions.assertEquals(moving, grid.findNearest(990, 990, 1).get(0).entity());
+            moving.removeType(Point.class);
+            Assertions.assertTrue(grid.findInRange(1000, 1000, 1).isEmpty());
+            entityRepository.deleteEntity(entities.get(0));
+            entityRepository.deleteEntities(entityRepository.findEntitiesWith(C1.class));
+            Assertions.assertEquals(49, grid.size());
+            Assertions.assertEquals(entities.stream().filter(e -> !e.isDeleted() && e != moving)
+                    .collect(Collectors.toSet()), entities(grid.findNearest(0, 0, 100)));
+        }
+    }
+
+    static final class Point {
+        double x, y;
+
+        Point(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    record C1(int id) {
+    }
+
+    record C2(int id) {
+    }
+}
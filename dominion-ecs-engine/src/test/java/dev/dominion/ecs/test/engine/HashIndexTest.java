@@ -0,0 +1,184 @@
+package dev.dominion.ecs.test.engine;
+
+import dev.dominion.ecs.api.ComponentIndex;
+import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.LazyEntity;
+import dev.dominion.ecs.api.PrimitiveComponent;
+import dev.dominion.ecs.engine.EntityRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class HashIndexTest {
+
+    @Test
+    void indexExistingAndNewEntities() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            Entity entity1 = entityRepository.createEntity(new C1(1));
+            Entity entity2 = entityRepository.createEntity(new C1(2), new C2(2));
+            entityRepository.createEntities(3, entityRepository.composition().of(L1.class),
+                    (index, components) -> components[0] = new L1(index % 2));
+            // existing entities are indexed at once, lazy ones included
+            ComponentIndex<Integer> byParity = entityRepository.createIndex(C1.class, c1 -> c1.id() % 2);
+            ComponentIndex<Integer> lazyIndex = entityRepository.createIndex(L1.class, L1::id);
+            Assertions.assertEquals(Set.of(entity1), byParity.findEntities(1));
+            Assertions.assertEquals(Set.of(entity2), byParity.findEntities(0));
+            Assertions.assertEquals(2, lazyIndex.findEntities(0).size());
+            Assertions.assertEquals(3, lazyIndex.size());
+
+            Entity entity3 = entityRepository.createEntity(new C1(3));
+            Assertions.assertEquals(Set.of(entity1, entity3), byParity.findEntities(1));
+            Assertions.assertTrue(byParity.findEntities(5).isEmpty());
+            Assertions.assertNull(byParity.findEntity(5));
+            Assertions.assertEquals(3, byParity.size());
+        }
+    }
+
+    @Test
+    void rekey() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            // in place changes are picked up by markChanged
+            Named named = new Named("a");
+            Entity entity = entityRepository.createEntity(named);
+            ComponentIndex<String> byName = entityRepository.createIndex(Named.class, n -> n.name);
+            Assertions.assertEquals(entity, byName.findEntity("a"));
+            named.name = "b";
+            entity.markChanged();
+            Assertions.assertNull(byName.findEntity("a"));
+            Assertions.assertEquals(entity, byName.findEntity("b"));
+            // a null key removes the entity from the index
+            named.name = null;
+            entity.markChanged();
+            Assertions.assertEquals(0, byName.size());
+            named.name = "c";
+            entity.markChanged();
+            Assertions.assertEquals(entity, byName.findEntity("c"));
+
+            // replacing the component re-keys the entity as well
+            entity.add(new C1(1));
+            ComponentIndex<Integer> byId = entityRepository.createIndex(C1.class, C1::id);
+            entity.removeType(C1.class);
+            entity.add(new C1(2));
+            Assertions.assertNull(byId.findEntity(1));
+            Assertions.assertEquals(entity, byId.findEntity(2));
+        }
+    }
+
+    @Test
+    void rekeyByPrimitiveSetters() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            for (int i = 0; i < 100; i++) {
+                entityRepository.createEntity(new C1(i), new P1(i, 0));
+            }
+            AtomicInteger extracted = new AtomicInteger();
+            ComponentIndex<Integer> byC1 = entityRepository.createIndex(C1.class, c1 -> {
+                extracted.incrementAndGet();
+                return c1.id();
+            });
+            ComponentIndex<Integer> byP1 = entityRepository.createIndex(P1.class, P1::id);
+            Assertions.assertEquals(100, extracted.getAndSet(0));
+
+            entityRepository.findEntitiesWith(P1.class).forEachChunk(chunk -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.setInt(0, 0, i, chunk.getInt(0, 0, i) + 1000);
+                }
+            });
+            Assertions.assertTrue(byP1.findEntities(0).isEmpty());
+            for (int i = 0; i < 100; i++) {
+                Entity entity = byP1.findEntity(i + 1000);
+                Assertions.assertNotNull(entity);
+                Assertions.assertEquals(entity, byC1.findEntity(i));
+            }
+
+            // setters of the other fields and columns do not touch the indexes of other component types
+            entityRepository.findEntitiesWith(C1.class, P1.class).forEachChunk(chunk -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.setDouble(1, 1, i, -1);
+                }
+            });
+            Assertions.assertEquals(0, extracted.get());
+            Assertions.assertEquals(100, byP1.size());
+        }
+    }
+
+    @Test
+    void migrate() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            ComponentIndex<Integer> byId = entityRepository.createIndex(C1.class, C1::id);
+            Entity entity1 = entityRepository.createEntity(new C1(1));
+            Entity entity3 = entityRepository.createEntity(new C1(3));
+            // migrations keep the entity while the component type is kept
+            entity1.add(new C3(1));
+            Assertions.assertEquals(entity1, byId.findEntity(1));
+            entity1.removeType(C3.class);
+            Assertions.assertEquals(entity1, byId.findEntity(1));
+            entity1.removeType(C1.class);
+            Assertions.assertNull(byId.findEntity(1));
+            Assertions.assertEquals(Set.of(entity3), byId.findEntities(3));
+            entity1.add(new C1(4));
+            Assertions.assertEquals(entity1, byId.findEntity(4));
+            Assertions.assertEquals(2, byId.size());
+
+            // bulk migrations of lazy entities materialize them to be indexed
+            entityRepository.createEntities(3, entityRepository.composition().of(L1.class),
+                    (index, components) -> components[0] = new L1(index));
+            ComponentIndex<Integer> lazyIndex = entityRepository.createIndex(L1.class, L1::id);
+            ComponentIndex<Integer> byC2 = entityRepository.createIndex(C2.class, C2::id);
+            Assertions.assertEquals(3, entityRepository.modifyEntities(entityRepository.findEntitiesWith(L1.class),
+                    entityRepository.composition().byAdding1AndRemoving(C2.class),
+                    (index, components) -> components[0] = new C2(10 + index)));
+            Assertions.assertEquals(3, lazyIndex.size());
+            Assertions.assertEquals(3, byC2.size());
+            Assertions.assertTrue(byC2.findEntity(10).contains(new L1(0)));
+        }
+    }
+
+    @Test
+    void bulkDelete() {
+        try (EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test")) {
+            for (int i = 0; i < 1000; i++) {
+                entityRepository.createEntity(i % 2 == 0 ? new Object[]{new C1(i)} : new Object[]{new C1(i), new C2(i)});
+            }
+            ComponentIndex<Integer> byParity = entityRepository.createIndex(C1.class, c1 -> c1.id() % 2);
+            ComponentIndex<Integer> byC2 = entityRepository.createIndex(C2.class, C2::id);
+            Assertions.assertEquals(500, byParity.findEntities(1).size());
+
+            Assertions.assertEquals(500, entityRepository.deleteEntities(entityRepository.findEntitiesWith(C2.class)));
+            Assertions.assertTrue(byParity.findEntities(1).isEmpty());
+            Assertions.assertEquals(500, byParity.findEntities(0).size());
+            Assertions.assertEquals(0, byC2.size());
+
+            Entity entity = byParity.findEntity(0);
+            entityRepository.deleteEntity(entity);
+            Assertions.assertFalse(byParity.findEntities(0).contains(entity));
+            Assertions.assertEquals(499, byParity.size());
+        }
+    }
+
+    static final class Named {
+        String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+    }
+
+    record C1(int id) {
+    }
+
+    record C2(int id) {
+    }
+
+    record C3(int id) {
+    }
+
+    @LazyEntity
+    record L1(int id) {
+    }
+
+    @PrimitiveComponent
+    record P1(int id, double value) {
+    }
+}
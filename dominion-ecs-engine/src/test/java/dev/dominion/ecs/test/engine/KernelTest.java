@@ -0,0 +1,170 @@
+package dev.dominion.ecs.test.engine;
+
+import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.engine.DataComposition;
+import dev.dominion.ecs.engine.IntEntity;
+import dev.dominion.ecs.engine.Kernel;
+import dev.dominion.ecs.engine.collections.ChunkedPool;
+import dev.dominion.ecs.engine.system.ClassIndex;
+import dev.dominion.ecs.engine.system.Config;
+import dev.dominion.ecs.engine.system.Logging;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+class KernelTest {
+
+    private static final ChunkedPool.IdSchema ID_SCHEMA =
+            new ChunkedPool.IdSchema(Config.DEFAULT_CHUNK_BIT);
+    // required types in the reverse order of the composition columns
+    private static final Class<?>[] SHAPE = {C6.class, C5.class, C4.class, C3.class, C2.class, C1.class};
+    private static final int CAPACITY = 10_000;
+    private static final long SUM = (long) CAPACITY * (CAPACITY - 1) / 2;
+
+    private static void withComposition(Consumer<DataComposition> test) {
+        ClassIndex classIndex = new ClassIndex();
+        for (Class<?> type : SHAPE) {
+            classIndex.addClass(type);
+        }
+        try (ChunkedPool<IntEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.TEST)) {
+            DataComposition composition = new DataComposition(null, chunkedPool, classIndex, ID_SCHEMA
+                    , Logging.Context.TEST, C1.class, C2.class, C3.class, C4.class, C5.class, C6.class);
+            for (int i = 0; i < CAPACITY; i++) {
+                composition.createEntity(false, new C1(i), new C2(i), new C3(i), new C4(i), new C5(i), new C6(i));
+            }
+            test.accept(composition);
+        }
+    }
+
+    private static void forEachChunk(DataComposition composition, Consumer<ChunkedPool.LinkedChunk<IntEntity>> action) {
+        int chunks = 0;
+        for (var chunk = composition.getTenant().getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+            action.accept(chunk);
+            chunks++;
+        }
+        Assertions.assertTrue(chunks > 1);
+    }
+
+    @Test
+    void forEach() {
+        withComposition(composition -> {
+            AtomicLong sum = new AtomicLong();
+            var of1 = (Kernel.Of1) composition.fetchKernel(SHAPE, 1);
+            forEachChunk(composition, chunk -> of1.forEach(chunk, (C6 c6) -> sum.addAndGet(c6.id())));
+            Assertions.assertEquals(SUM, sum.getAndSet(0));
+
+            var of2 = (Kernel.Of2) composition.fetchKernel(SHAPE, 2);
+            forEachChunk(composition, chunk -> of2.forEach(chunk, (C6 c6, C5 c5) -> {
+                Assertions.assertEquals(c6.id(), c5.id());
+                sum.addAndGet(c5.id());
+            }));
+            Assertions.assertEquals(SUM, sum.getAndSet(0));
+
+            var of3 = (Kernel.Of3) composition.fetchKernel(SHAPE, 3);
+            forEachChunk(composition, chunk -> of3.forEach(chunk, (C6 c6, C5 c5, C4 c4) -> {
+                Assertions.assertEquals(c6.id(), c4.id());
+                sum.addAndGet(c4.id());
+            }));
+            Assertions.assertEquals(SUM, sum.getAndSet(0));
+
+            var of4 = (Kernel.Of4) composition.fetchKernel(SHAPE, 4);
+            forEachChunk(composition, chunk -> of4.forEach(chunk, (C6 c6, C5 c5, C4 c4, C3 c3) -> {
+                Assertions.assertEquals(c6.id(), c3.id());
+                sum.addAndGet(c3.id());
+            }));
+            Assertions.assertEquals(SUM, sum.getAndSet(0));
+
+            var of5 = (Kernel.Of5) composition.fetchKernel(SHAPE, 5);
+            forEachChunk(composition, chunk -> of5.forEach(chunk, (C6 c6, C5 c5, C4 c4, C3 c3, C2 c2) -> {
+                Assertions.assertEquals(c6.id(), c2.id());
+                sum.addAndGet(c2.id());
+            }));
+            Assertions.assertEquals(SUM, sum.getAndSet(0));
+
+            var of6 = (Kernel.Of6) composition.fetchKernel(SHAPE, 6);
+            forEachChunk(composition, chunk -> of6.forEach(chunk, (C6 c6, C5 c5, C4 c4, C3 c3, C2 c2, C1 c1) -> {
+                Assertions.assertEquals(c6.id(), c1.id());
+                sum.addAndGet(c1.id());
+            }));
+            Assertions.assertEquals(SUM, sum.get());
+        });
+    }
+
+    @Test
+    void forEachWithEntity() {
+        withComposition(composition -> {
+            AtomicInteger count = new AtomicInteger();
+            var of1 = (Kernel.Of1) composition.fetchKernel(SHAPE, 1);
+            forEachChunk(composition, chunk -> of1.forEachWithEntity(chunk, (Entity entity, C6 c6) -> {
+                Assertions.assertSame(entity, chunk.get(((IntEntity) entity).getId()));
+                Assertions.assertEquals(c6, composition.getComponent((IntEntity) entity, C6.class));
+                count.incrementAndGet();
+            }));
+            Assertions.assertEquals(CAPACITY, count.getAndSet(0));
+
+            var of6 = (Kernel.Of6) composition.fetchKernel(SHAPE, 6);
+            forEachChunk(composition, chunk -> of6.forEachWithEntity(chunk,
+                    (Entity entity, C6 c6, C5 c5, C4 c4, C3 c3, C2 c2, C1 c1) -> {
+                        Assertions.assertEquals(c1, composition.getComponent((IntEntity) entity, C1.class));
+                        Assertions.assertEquals(c6.id(), c1.id());
+                        count.incrementAndGet();
+                    }));
+            Assertions.assertEquals(CAPACITY, count.get());
+        });
+    }
+
+    @Test
+    void afterRemoval() {
+        withComposition(composition -> {
+            var tenant = composition.getTenant();
+            IntEntity first = tenant.getFirstChunk().fetchItem(0);
+            composition.getTenant().freeId(first.getId());
+            AtomicInteger count = new AtomicInteger();
+            var of2 = (Kernel.Of2) composition.fetchKernel(SHAPE, 2);
+            forEachChunk(composition, chunk -> of2.forEach(chunk, (C6 c6, C5 c5) -> {
+                Assertions.assertNotNull(c6);
+                count.incrementAndGet();
+            }));
+            Assertions.assertEquals(CAPACITY - 1, count.get());
+        });
+    }
+
+    @Test
+    void hiddenClassPerShape() {
+        withComposition(composition -> {
+            Kernel kernel = composition.fetchKernel(SHAPE, 2);
+            Assertions.assertTrue(kernel.getClass().isHidden());
+            Assertions.assertSame(kernel, composition.fetchKernel(SHAPE, 2));
+            Kernel other = composition.fetchKernel(new Class<?>[]{C1.class, C2.class}, 2);
+            Assertions.assertInstanceOf(Kernel.Of2.class, other);
+            Assertions.assertNotSame(kernel.getClass(), other.getClass());
+            AtomicLong sum = new AtomicLong();
+            forEachChunk(composition, chunk -> ((Kernel.Of2) other).forEach(chunk, (C1 c1, C2 c2) -> {
+                Assertions.assertEquals(c1.id(), c2.id());
+                sum.addAndGet(c1.id());
+            }));
+            Assertions.assertEquals(SUM, sum.get());
+        });
+    }
+
+    record C1(int id) {
+    }
+
+    record C2(int id) {
+    }
+
+    record C3(int id) {
+    }
+
+    record C4(int id) {
+    }
+
+    record C5(int id) {
+    }
+
+    record C6(int id) {
+    }
+}
@@ -9,9 +9,12 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ChunkedPoolTest {
     private static final ChunkedPool.IdSchema ID_SCHEMA =
@@ -46,7 +49,7 @@ class ChunkedPoolTest {
         }
 
         @Override
-        public void setStateId(int id) {
+        public void setState(ChunkedPool.LinkedChunk<? extends Item> stateChunk, int stateId) {
         }
 
         @Override
@@ -59,7 +62,46 @@ class ChunkedPoolTest {
         }
 
         @Override
-        public void setStateChunk(ChunkedPool.LinkedChunk<? extends Item> chunk) {
+        public void clearState(ChunkedPool.LinkedChunk<? extends Item> stateChunk) {
+        }
+    }
+
+    public static final class MovableEntity implements Item {
+        private final int value;
+        private int id;
+        private ChunkedPool.LinkedChunk<? extends Item> chunk;
+
+        public MovableEntity(int id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void setState(ChunkedPool.LinkedChunk<? extends Item> stateChunk, int stateId) {
+        }
+
+        @Override
+        public ChunkedPool.LinkedChunk<? extends Item> getChunk() {
+            return chunk;
+        }
+
+        @Override
+        public void setChunk(ChunkedPool.LinkedChunk<? extends Item> chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public void clearState(ChunkedPool.LinkedChunk<? extends Item> stateChunk) {
         }
     }
 
@@ -111,6 +153,39 @@ class ChunkedPoolTest {
             }
         }
 
+        @Test
+        public void releaseAndReuseChunk() {
+            try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.TEST)) {
+                ChunkedPool.Tenant<TestEntity> tenant = chunkedPool.newTenant();
+                for (int i = 0; i < ID_SCHEMA.chunkCapacity() * 2; i++) {
+                    tenant.register(new TestEntity(tenant.nextId(), null, null), null);
+                }
+                Assertions.assertEquals(1, ID_SCHEMA.fetchChunkId(tenant.getFirstChunk().getNext().getItem(0).id));
+                Assertions.assertEquals(ID_SCHEMA.createId(0, ID_SCHEMA.chunkCapacity() - 1),
+                        tenant.freeId(ID_SCHEMA.createId(0, 0)));
+                Assertions.assertEquals(ID_SCHEMA.createId(0, ID_SCHEMA.chunkCapacity() - 1), tenant.nextId());
+                for (int i = ID_SCHEMA.chunkCapacity() - 1; i >= 0; i--) {
+                    tenant.freeId(ID_SCHEMA.createId(0, i));
+                }
+                Assertions.assertEquals(1, chunkedPool.getReleasedChunkCount());
+                Assertions.assertEquals(1, chunkedPool.getFreeChunkCount());
+                Assertions.assertNull(tenant.getFirstChunk().getPrevious());
+                Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), chunkedPool.size());
+                Iterator<TestEntity> iterator = tenant.iterator();
+                int count = 0;
+                while (iterator.hasNext()) {
+                    Assertions.assertEquals(1, ID_SCHEMA.fetchChunkId(iterator.next().id));
+                    count++;
+                }
+                Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), count);
+
+                ChunkedPool.Tenant<TestEntity> other = chunkedPool.newTenant();
+                Assertions.assertEquals(1, chunkedPool.getReusedChunkCount());
+                Assertions.assertEquals(0, ID_SCHEMA.fetchChunkId(other.nextId()));
+                Assertions.assertThrows(IllegalArgumentException.class, () -> tenant.freeId(ID_SCHEMA.createId(0, 0)));
+            }
+        }
+
         @Test
         public void concurrentNextId() throws InterruptedException {
             try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.STRESS_TEST)) {
@@ -182,6 +257,56 @@ class ChunkedPoolTest {
             }
         }
 
+        @Test
+        void concurrentRegisterAndFreeFreshIds() throws InterruptedException {
+            try (ChunkedPool<MovableEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.STRESS_TEST)) {
+                ChunkedPool.Tenant<MovableEntity> tenant = chunkedPool.newTenant(1, null, null);
+                final int capacity = 1 << 18;
+                final ExecutorService pool = Executors.newFixedThreadPool(8);
+                Set<MovableEntity> live = ConcurrentHashMap.newKeySet();
+                AtomicInteger freed = new AtomicInteger();
+                for (int i = 0; i < capacity; i++) {
+                    final int value = i;
+                    pool.execute(() -> {
+                        int id = tenant.reserveId();
+                        MovableEntity entity;
+                        try {
+                            entity = tenant.register(new MovableEntity(id, value), new Object[]{value});
+                        } finally {
+                            tenant.publish(id);
+                        }
+                        if (value % 2 == 0) {
+                            // removals swap the last items of the chunk, ids are stable under the tenant monitor
+                            synchronized (tenant) {
+                                tenant.freeId(entity.getId());
+                            }
+                            freed.incrementAndGet();
+                        } else {
+                            live.add(entity);
+                        }
+                    });
+                }
+                pool.shutdown();
+                Assertions.assertTrue(pool.awaitTermination(600, TimeUnit.SECONDS));
+                Assertions.assertEquals(capacity / 2, freed.get());
+                Assertions.assertEquals(live.size(), chunkedPool.size());
+                int found = 0;
+                for (var chunk = tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        MovableEntity entity = chunk.getItem(i);
+                        Assertions.assertNotNull(entity);
+                        Assertions.assertTrue(live.contains(entity));
+                        Assertions.assertEquals(chunk, entity.getChunk());
+                        Assertions.assertSame(entity, chunkedPool.getEntry(entity.getId()));
+                        Assertions.assertEquals(i, ID_SCHEMA.fetchObjectId(entity.getId()));
+                        Assertions.assertEquals(entity.value, chunk.getFromDataArray(entity.getId()));
+                        found++;
+                    }
+                }
+                Assertions.assertEquals(live.size(), found);
+            }
+        }
+
         @Test
         void concurrentTenants() throws InterruptedException {
             int capacity = 1 << 18;
@@ -262,6 +387,8 @@ class ChunkedPoolTest {
             Assertions.assertTrue(chunk.hasCapacity());
             chunk.incrementIndex();
             Assertions.assertFalse(chunk.hasCapacity());
+            Assertions.assertEquals(-1, chunk.tryIncrementIndex());
+            Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), chunk.size());
         }
 
         @Test
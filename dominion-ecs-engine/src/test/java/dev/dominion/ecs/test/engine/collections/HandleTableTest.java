@@ -0,0 +1,52 @@
+package dev.dominion.ecs.test.engine.collections;
+
+import dev.dominion.ecs.engine.collections.HandleTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HandleTableTest {
+
+    @Test
+    void registerAndGet() {
+        try (HandleTable<String> handles = new HandleTable<>()) {
+            long first = handles.register("first");
+            long second = handles.register("second");
+            Assertions.assertNotEquals(0, first);
+            Assertions.assertNotEquals(first, second);
+            Assertions.assertEquals("first", handles.get(first));
+            Assertions.assertEquals("second", handles.get(second));
+            Assertions.assertNull(handles.get(0));
+            Assertions.assertNull(handles.get(Long.MAX_VALUE));
+            Assertions.assertEquals(2, handles.size());
+        }
+    }
+
+    @Test
+    void releaseAndReuse() {
+        try (HandleTable<String> handles = new HandleTable<>()) {
+            long stale = handles.register("stale");
+            Assertions.assertTrue(handles.release(stale));
+            Assertions.assertFalse(handles.release(stale));
+            Assertions.assertNull(handles.get(stale));
+            long reused = handles.register("reused");
+            Assertions.assertEquals((int) stale, (int) reused);
+            Assertions.assertNotEquals(stale, reused);
+            Assertions.assertNull(handles.get(stale));
+            Assertions.assertEquals("reused", handles.get(reused));
+        }
+    }
+
+    @Test
+    void grow() {
+        try (HandleTable<Integer> handles = new HandleTable<>()) {
+            int count = HandleTable.PAGE_CAPACITY * 20;
+            long[] array = new long[count];
+            for (int i = 0; i < count; i++) {
+                array[i] = handles.register(i);
+            }
+            for (int i = 0; i < count; i++) {
+                Assertions.assertEquals(i, handles.get(array[i]));
+            }
+        }
+    }
+}
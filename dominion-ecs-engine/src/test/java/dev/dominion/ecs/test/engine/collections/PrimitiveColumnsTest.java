@@ -0,0 +1,67 @@
+package dev.dominion.ecs.test.engine.collections;
+
+import dev.dominion.ecs.engine.collections.PrimitiveColumns;
+import dev.dominion.ecs.engine.collections.PrimitiveLayout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveColumnsTest {
+    @Test
+    void layout() {
+        PrimitiveLayout layout = PrimitiveLayout.of(P1.class);
+        Assertions.assertEquals(4, layout.fieldCount());
+        Assertions.assertEquals(PrimitiveLayout.INT, layout.kind(0));
+        Assertions.assertEquals(PrimitiveLayout.LONG, layout.kind(1));
+        Assertions.assertEquals(PrimitiveLayout.FLOAT, layout.kind(2));
+        Assertions.assertEquals(PrimitiveLayout.DOUBLE, layout.kind(3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PrimitiveLayout.of(String.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PrimitiveLayout.of(O1.class));
+    }
+
+    @Test
+    void writeRead() {
+        PrimitiveColumns columns = PrimitiveColumns.of(PrimitiveLayout.of(P1.class), 8);
+        columns.write(3, new P1(1, 2, 3, 4));
+        Assertions.assertEquals(new P1(1, 2, 3, 4), columns.read(3));
+        Assertions.assertEquals(1, ((int[]) columns.getArray(0))[3]);
+        Assertions.assertEquals(4, ((double[]) columns.getArray(3))[3]);
+        ((float[]) columns.getArray(2))[3] = 5;
+        Assertions.assertEquals(new P1(1, 2, 5, 4), columns.read(3));
+    }
+
+    @Test
+    void copy() {
+        PrimitiveLayout layout = PrimitiveLayout.of(P1.class);
+        PrimitiveColumns columns = PrimitiveColumns.of(layout, 8);
+        PrimitiveColumns target = PrimitiveColumns.of(layout, 8);
+        columns.write(0, new P1(1, 2, 3, 4));
+        columns.copy(0, target, 7);
+        Assertions.assertEquals(new P1(1, 2, 3, 4), target.read(7));
+        columns.write(1, new P1(5, 6, 7, 8));
+        columns.copy(0, target, 2, 2);
+        Assertions.assertEquals(new P1(1, 2, 3, 4), target.read(2));
+        Assertions.assertEquals(new P1(5, 6, 7, 8), target.read(3));
+    }
+
+    @Test
+    void offHeap() {
+        PrimitiveLayout layout = PrimitiveLayout.of(P1.class, true);
+        Assertions.assertTrue(layout.isOffHeap());
+        try (PrimitiveColumns columns = PrimitiveColumns.of(layout, 8);
+             PrimitiveColumns target = PrimitiveColumns.of(layout, 8)) {
+            Assertions.assertNull(columns.getArray(0));
+            columns.write(7, new P1(1, 2, 3, 4));
+            Assertions.assertEquals(new P1(1, 2, 3, 4), columns.read(7));
+            columns.setDouble(3, 7, 5);
+            Assertions.assertEquals(2, columns.getLong(1, 7));
+            columns.copy(7, target, 0);
+            Assertions.assertEquals(new P1(1, 2, 3, 5), target.read(0));
+        }
+    }
+
+    record P1(int id, long time, float x, double y) {
+    }
+
+    record O1(int id, String name) {
+    }
+}
@@ -51,6 +51,25 @@ public class ClassIndexTest {
         }
     }
 
+    @Test
+    void getIndexBits() {
+        try (ClassIndex map = new ClassIndex()) {
+            map.getIndexOrAddClassBatch(new Class<?>[]{C1.class, C2.class});
+            Assertions.assertArrayEquals(new long[]{0b110}, map.getIndexBits(new Class<?>[]{C1.class, C2.class}));
+            Assertions.assertArrayEquals(new long[]{0b011}, map.getIndexBits(new Class<?>[]{C1.class, C3.class}));
+
+            // the bitset grows by one word every 64 indexes
+            Class<?> type = int.class;
+            for (int i = 3; i < 130; i++) {
+                type = type.arrayType();
+                Assertions.assertEquals(i, map.addClass(type));
+                Assertions.assertEquals((i >>> 6) + 1, map.getIndexBits(new Class<?>[]{C1.class, type}).length);
+            }
+            Assertions.assertArrayEquals(new long[]{0b010, 0L, 0b010}
+                    , map.getIndexBits(new Class<?>[]{C1.class, type}));
+        }
+    }
+
     @Test
     void size() {
         try (ClassIndex map = new ClassIndex()) {
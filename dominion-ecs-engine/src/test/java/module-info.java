@@ -3,4 +3,5 @@ open module dev.dominion.ecs.test.engine {
     requires dev.dominion.ecs.engine;
     requires org.junit.jupiter.api;
     requires org.junit.jupiter.engine;
+    requires jol.core;
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * The QueryProcessor generates at build time the queries of the system methods annotated with
+ * dev.dominion.ecs.api.Query.
+ * For each system class it writes a SystemNameQueries class that compiles one Results for each annotated method and
+ * provides a method of the same name iterating the found chunks with a straight loop over the component columns,
+ * calling the system method for each entity without reflection and without allocating any result.
+ * Annotated methods are checked at build time: invalid declarations are reported as compilation errors.
+ */
+@SupportedAnnotationTypes(QueryProcessor.QUERY)
+public final class QueryProcessor extends AbstractProcessor {
+    public static final String QUERY = "dev.dominion.ecs.api.Query";
+    public static final String ENTITY = "dev.dominion.ecs.api.Entity";
+    public static final String PRIMITIVE_COMPONENT = "dev.dominion.ecs.api.PrimitiveComponent";
+    public static final String SUFFIX = "Queries";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<TypeElement, List<ExecutableElement>> systems = new LinkedHashMap<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.METHOD) {
+                    continue;
+                }
+                ExecutableElement method = (ExecutableElement) element;
+                if (checkMethod(method)) {
+                    systems.computeIfAbsent((TypeElement) method.getEnclosingElement(), k -> new ArrayList<>())
+                            .add(method);
+                }
+            }
+        }
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : systems.entrySet()) {
+            if (checkSystem(entry.getKey(), entry.getValue())) {
+                writeQueries(entry.getKey(), entry.getValue());
+            }
+        }
+        return true;
+    }
+
+    private boolean checkMethod(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            return error(method, "@Query methods must not be private or static");
+        }
+        int entities = 0, components = 0;
+        Set<String> types = new HashSet<>();
+        for (VariableElement parameter : method.getParameters()) {
+            TypeMirror type = parameter.asType();
+            if (type.getKind() != TypeKind.DECLARED) {
+                return error(parameter, "@Query parameters must be component classes or Entity");
+            }
+            String name = erasure(type);
+            if (name.equals(ENTITY)) {
+                entities++;
+                continue;
+            }
+            if (isPrimitiveComponent((DeclaredType) type)) {
+                return error(parameter, "@Query parameters do not support primitive components");
+            }
+            if (!types.add(name)) {
+                return error(parameter, "Duplicate component type " + name);
+            }
+            components++;
+        }
+        if (entities > 1) {
+            return error(method, "@Query methods can take only one Entity parameter");
+        }
+        if (components == 0) {
+            return error(method, "@Query methods must take at least one component parameter");
+        }
+        return true;
+    }
+
+    private boolean checkSystem(TypeElement system, List<ExecutableElement> methods) {
+        for (Element element = system; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            Set<Modifier> modifiers = element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                return error(system, "Systems with @Query methods must not be private");
+            }
+            if (element.getEnclosingElement() instanceof TypeElement && !modifiers.contains(Modifier.STATIC)
+                    && element.getKind() == ElementKind.CLASS) {
+                return error(system, "Nested systems with @Query methods must be static");
+            }
+        }
+        Set<String> names = new HashSet<>();
+        for (ExecutableElement method : methods) {
+            if (!names.add(method.getSimpleName().toString())) {
+                return error(method, "@Query methods must not be overloaded");
+            }
+        }
+        return true;
+    }
+
+    private void writeQueries(TypeElement system, List<ExecutableElement> methods) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(system).getQualifiedName().toString();
+        String systemName = system.getQualifiedName().toString();
+        String queriesName = queriesName(system);
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(QueryProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(queriesName).append(" {\n")
+                .append("    private final ").append(systemName).append(" system;\n");
+        for (ExecutableElement method : methods) {
+            source.append("    private final dev.dominion.ecs.api.Results<Object[]> ")
+                    .append(method.getSimpleName()).append(";\n");
+        }
+        source.append("\n    public ").append(queriesName).append("(dev.dominion.ecs.api.Dominion dominion, ")
+                .append(systemName).append(" system) {\n")
+                .append("        this.system = system;\n");
+        for (ExecutableElement method : methods) {
+            StringJoiner types = new StringJoiner(", ");
+            for (VariableElement parameter : method.getParameters()) {
+                String name = erasure(parameter.asType());
+                if (!name.equals(ENTITY)) {
+                    types.add(name + ".class");
+                }
+            }
+            source.append("        this.").append(method.getSimpleName())
+                    .append(" = dominion.findCompositionsWithAll(").append(types).append(").compile();\n");
+        }
+        source.append("    }\n");
+        for (ExecutableElement method : methods) {
+            writeMethod(source, method);
+        }
+        source.append("}\n");
+        String fileName = packageName.isEmpty() ? queriesName : packageName + "." + queriesName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(fileName, system).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            error(system, "Unable to write " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    private void writeMethod(StringBuilder source, ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+        source.append("\n    public void ").append(name).append("() {\n")
+                .append("        ").append(name).append(".forEachChunk(chunk -> {\n");
+        StringJoiner arguments = new StringJoiner(", ");
+        int column = 0;
+        for (VariableElement parameter : method.getParameters()) {
+            String type = erasure(parameter.asType());
+            if (type.equals(ENTITY)) {
+                arguments.add("chunk.entity(i)");
+                continue;
+            }
+            source.append("            Object[] column").append(column).append(" = chunk.column(").append(column)
+                    .append(");\n");
+            arguments.add("(" + type + ") column" + column + "[i]");
+            column++;
+        }
+        source.append("            for (int i = 0, size = chunk.size(); i < size; i++) {\n")
+                .append("                system.").append(name).append("(").append(arguments).append(");\n")
+                .append("            }\n")
+                .append("        });\n")
+                .append("    }\n");
+    }
+
+    private String queriesName(TypeElement system) {
+        StringBuilder name = new StringBuilder(system.getSimpleName());
+        for (Element element = system.getEnclosingElement(); element instanceof TypeElement;
+             element = element.getEnclosingElement()) {
+            name.insert(0, element.getSimpleName() + "_");
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    private String erasure(TypeMirror type) {
+        TypeElement element = (TypeElement) ((DeclaredType) processingEnv.getTypeUtils().erasure(type)).asElement();
+        return element.getQualifiedName().toString();
+    }
+
+    private boolean isPrimitiveComponent(DeclaredType type) {
+        for (AnnotationMirror annotation : type.asElement().getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(PRIMITIVE_COMPONENT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+}
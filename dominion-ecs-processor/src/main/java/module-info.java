@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+import dev.dominion.ecs.processor.QueryProcessor;
+
+module dev.dominion.ecs.processor {
+    exports dev.dominion.ecs.processor
+            to dev.dominion.ecs.test.processor;
+    provides javax.annotation.processing.Processor with QueryProcessor;
+
+    requires java.compiler;
+}
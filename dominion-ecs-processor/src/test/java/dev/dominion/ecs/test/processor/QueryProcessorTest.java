@@ -0,0 +1,135 @@
+package dev.dominion.ecs.test.processor;
+
+import dev.dominion.ecs.api.Dominion;
+import dev.dominion.ecs.processor.QueryProcessor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.*;
+import java.net.URI;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+class QueryProcessorTest {
+
+    private static final String SYSTEM = """
+            package test;
+
+            import dev.dominion.ecs.api.Dominion;
+            import dev.dominion.ecs.api.Entity;
+            import dev.dominion.ecs.api.Query;
+
+            import java.util.function.Consumer;
+
+            public class MoveSystem implements Consumer<Dominion> {
+                public record Position(int x) {
+                }
+
+                public record Velocity(int x) {
+                }
+
+                public int moved;
+                public int named;
+
+                @Query
+                void move(Position position, Velocity velocity) {
+                    moved += position.x() + velocity.x();
+                }
+
+                @Query
+                void name(Entity entity, Position position) {
+                    if (entity.has(Position.class)) {
+                        named++;
+                    }
+                }
+
+                @Override
+                public void accept(Dominion dominion) {
+                    MoveSystemQueries queries = new MoveSystemQueries(dominion, this);
+                    queries.move();
+                    queries.name();
+                }
+            }
+            """;
+
+    @Test
+    void generate(@TempDir Path output) throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(output, "MoveSystem", SYSTEM);
+        Assertions.assertTrue(diagnostics.isEmpty(), diagnostics::toString);
+        Assertions.assertTrue(Files.exists(output.resolve("test/MoveSystemQueries.java")));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new java.net.URL[]{output.toUri().toURL()},
+                getClass().getClassLoader())) {
+            Class<?> positionClass = classLoader.loadClass("test.MoveSystem$Position");
+            Class<?> velocityClass = classLoader.loadClass("test.MoveSystem$Velocity");
+            Class<?> systemClass = classLoader.loadClass("test.MoveSystem");
+            Dominion dominion = Dominion.create();
+            for (int i = 0; i < 3; i++) {
+                dominion.createEntity(
+                        positionClass.getConstructor(int.class).newInstance(i),
+                        velocityClass.getConstructor(int.class).newInstance(1)
+                );
+            }
+            dominion.createEntity(positionClass.getConstructor(int.class).newInstance(10));
+            Object system = systemClass.getConstructor().newInstance();
+            @SuppressWarnings("unchecked")
+            Consumer<Dominion> consumer = (Consumer<Dominion>) system;
+            consumer.accept(dominion);
+            Assertions.assertEquals(6, systemClass.getField("moved").getInt(system));
+            Assertions.assertEquals(4, systemClass.getField("named").getInt(system));
+        }
+    }
+
+    @Test
+    void reportErrors(@TempDir Path output) throws Exception {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(output, "InvalidSystem", """
+                package test;
+
+                import dev.dominion.ecs.api.Query;
+
+                public class InvalidSystem {
+                    @Query
+                    private void hidden(String value) {
+                    }
+
+                    @Query
+                    void primitive(int value) {
+                    }
+
+                    @Query
+                    void duplicate(String first, String second) {
+                    }
+                }
+                """);
+        Assertions.assertEquals(3, diagnostics.stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .count(), diagnostics::toString);
+        Assertions.assertFalse(Files.exists(output.resolve("test/InvalidSystemQueries.java")));
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> compile(Path output, String name, String source) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        String classPath = Path.of(Dominion.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .toString();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///test/" + name + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-d", output.toString(), "-s", output.toString(), "-classpath", classPath),
+                    null, List.of(file));
+            task.setProcessors(List.of(new QueryProcessor()));
+            task.call();
+        }
+        return diagnostics.getDiagnostics();
+    }
+}
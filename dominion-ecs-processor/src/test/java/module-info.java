@@ -0,0 +1,8 @@
+open module dev.dominion.ecs.test.processor {
+    requires dev.dominion.ecs.api;
+    requires dev.dominion.ecs.engine;
+    requires dev.dominion.ecs.processor;
+    requires java.compiler;
+    requires org.junit.jupiter.api;
+    requires org.junit.jupiter.engine;
+}